@@ -0,0 +1,67 @@
+package net.onedaybeard.graftt.agent
+
+import com.github.michaelbull.result.onFailure
+import com.github.michaelbull.result.onSuccess
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.graft.Phase
+import net.onedaybeard.graftt.graft.PhaseListener
+import net.onedaybeard.graftt.graft.Verification
+import net.onedaybeard.graftt.graft.timed
+import net.onedaybeard.graftt.makeLogger
+import net.onedaybeard.graftt.verify
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/** `verify` agent argument; [Verification] extended with [ASYNC] */
+enum class VerifyMode(
+    /** verification performed while transforming */
+    val inline: Verification
+) {
+    FULL(Verification.FULL),
+    MODIFIED_METHODS_ONLY(Verification.MODIFIED_METHODS_ONLY),
+    /** grafted classes are returned unverified, then fully verified by [AsyncVerifier] */
+    ASYNC(Verification.OFF),
+    OFF(Verification.OFF);
+
+    val key: String
+        get() = name.toLowerCase().replace('_', '-')
+
+    companion object {
+        fun parse(key: String): VerifyMode = values().find { it.key == key }
+            ?: throw IllegalArgumentException("verify must be one of ${values().map(VerifyMode::key)}: $key")
+    }
+}
+
+/**
+ * Verifies grafted classes on a background daemon thread, keeping
+ * verification off the class loading path. Failures are logged and
+ * counted by [GraftStats.verificationFailures]; the class has been
+ * loaded by then. [submit]'s `verified` callback only runs for classes
+ * passing verification.
+ */
+class AsyncVerifier(private val stats: GraftStats) {
+    private val log = makeLogger()
+
+    private val executor = Executors.newSingleThreadExecutor { r ->
+        Thread(r, "graftt-verify").apply { isDaemon = true }
+    }
+
+    fun submit(
+        className: String,
+        classfile: ByteArray,
+        phases: PhaseListener,
+        verified: (ByteArray) -> Unit = {}
+    ) {
+        executor.execute {
+            phases.timed(Phase.VERIFY) { verify(classNode(classfile)) }
+                .onSuccess { verified(classfile) }
+                .onFailure { stats.verificationFailed() }
+                .onFailure { log.error(it.toException()) { "verification failed: $className" } }
+        }
+    }
+
+    /** waits for all classes submitted so far to be verified */
+    fun await(timeout: Long = 10, unit: TimeUnit = TimeUnit.SECONDS) {
+        executor.submit { }.get(timeout, unit)
+    }
+}
@@ -0,0 +1,25 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.graft.Discovered
+import net.onedaybeard.graftt.graft.discover
+import net.onedaybeard.graftt.mapClassfiles
+import java.io.File
+
+/** worker threads discovering and preparing transplants on start-up */
+val DISCOVERY_THREADS = Runtime.getRuntime().availableProcessors().coerceIn(1, 4)
+
+/** files of a directory root per discovery task */
+private const val FILES_PER_TASK = 256
+
+/**
+ * Splits discovery of [root] into tasks: chunks of files for directories,
+ * the entire archive for jars.
+ */
+internal fun discoveryTasks(root: File): List<() -> List<Discovered>> = when {
+    root.isDirectory -> root.walk()
+        .filter { it.extension == "class" }
+        .chunked(FILES_PER_TASK)
+        .map { files -> { files.mapNotNull { discover(it.readBytes()) } } }
+        .toList()
+    else -> listOf({ mapClassfiles(root, ::discover) })
+}
@@ -3,25 +3,77 @@ package net.onedaybeard.graftt.agent
 import java.io.File
 import java.lang.instrument.Instrumentation
 
-
 fun premain(agentArgs: String?, inst: Instrumentation) {
-    GraftTransformer().apply {
-        inst.addTransformer(this)
+    installAgent(agentArgs, inst)
+}
+
+/** installs the transformer configured by [agentArgs] with [inst], as [premain] does */
+internal fun installAgent(agentArgs: String?, inst: Instrumentation): GraftTransformer {
+    val start = System.nanoTime()
+    val args = parseArgs(agentArgs)
+        .also(::validate)
+
+    // untouched methods were verified when compiled; only the agent skips them by default
+    val verify = args["verify"]
+        ?.let { VerifyMode.parse(it.single()) }
+        ?: VerifyMode.MODIFIED_METHODS_ONLY
+
+    // retransformation hands over the original class file, never grafted bytes
+    val watch = args["watch"]?.single()?.toBoolean() == true
 
-        // transplants from agent args
-        parseArgs(agentArgs)
-            .also(::validate)
-            .let { args -> args["classpath"] ?: args["cp"] ?: listOf() }
-            .map(::File)
-            .forEach(::register)
+    val transformer = GraftTransformer(
+        transformCache(args),
+        verify = verify,
+        retainParsedDonors = watch,
+        scope = transformScope(args))
+
+    transformer.apply {
+        if (args["jmx"]?.single()?.toBoolean() == true)
+            stats.registerMBean()
+
+        inst.addTransformer(this, watch)
+
+        // transplants from agent args; scanned before returning, registered in the background
+        val roots = (args["classpath"] ?: args["cp"] ?: listOf()).map(::File)
+        registerAsync(roots)
 
         // transplants from /graftt.index files
         registerTransplantIndices()
+
+        // recipients grafted at build time, from /graftt.prebaked files
+        registerPrebaked()
+
+        if (watch) {
+            TransplantWatcher(this, roots,
+                loadedClasses = { inst.allLoadedClasses.filter(inst::isModifiableClass) },
+                retransform = { classes -> inst.retransformClasses(*classes) }
+            ).start()
+        }
     }
+
+    transformer.stats.startupNanos = System.nanoTime() - start
+    return transformer
+}
+
+private fun transformCache(args: Map<String, List<String>>): TransformCache? {
+    val size = args["cacheSize"]
+        ?.let { parseSize(it.single()) }
+        ?: DEFAULT_CACHE_SIZE
+
+    return args["cache"]
+        ?.let { TransformCache(File(it.single()), size) }
+}
+
+private fun transformScope(args: Map<String, List<String>>): TransformScope {
+    return TransformScope(
+        packages = PackageFilter(args["include"] ?: listOf(), args["exclude"] ?: listOf()),
+        excludedLoaders = args["excludeLoaders"] ?: listOf(),
+        profiles = args["profile"]?.toSet() ?: setOf())
 }
 
 private fun validate(args: Map<String, List<String>>) {
-    val valid = listOf("classpath", "cp")
+    val valid = listOf("classpath", "cp", "cache", "cacheSize", "jmx", "verify", "watch",
+        "include", "exclude", "excludeLoaders", "profile")
 
     val invalid = args.filterKeys { it !in valid }
     if (invalid.isNotEmpty())
@@ -38,4 +90,3 @@ private fun parseArgs(rawArgs: String?): Map<String, List<String>> {
         .split(";")
         .associate { s -> s.token(0) to s.token(1).split(",")  }
 }
-
@@ -0,0 +1,159 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.graft.Phase
+import net.onedaybeard.graftt.graft.PhaseListener
+import java.lang.management.ManagementFactory
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.LongAdder
+import javax.management.ObjectName
+
+/** JMX view of [GraftStats]; all durations in nanoseconds */
+interface GraftStatsMXBean {
+    /** classes passed to the agent */
+    val classesSeen: Long
+    /** classes discarded by the constant pool scan, without parsing */
+    val classesRejected: Long
+    val transplantsApplied: Long
+    val transplantFailures: Long
+    /** grafted classes failing verification, including [VerifyMode.ASYNC] */
+    val verificationFailures: Long
+    /** transplanted classes served by [TransformCache] */
+    val cacheHits: Long
+    /** recipients served as grafted at build time, from `graftt.prebaked` */
+    val prebakedHits: Long
+    /** prebaked recipients grafted live, as the recipient or its donors changed since the build */
+    val prebakedMismatches: Long
+    /** time spent in `premain` */
+    val startupNanos: Long
+
+    /** number of recorded samples per phase */
+    val phaseCount: Map<String, Long>
+    val phaseTotalNanos: Map<String, Long>
+    /** approximate: upper bound of the histogram bucket */
+    val phaseMedianNanos: Map<String, Long>
+    /** approximate: upper bound of the histogram bucket */
+    val phaseP99Nanos: Map<String, Long>
+
+    /** total time spent on each recipient, across all phases */
+    val recipientNanos: Map<String, Long>
+
+    /** registered transplants */
+    val donors: Int
+    /** transplants currently held as parsed class nodes */
+    val donorsParsed: Int
+    /** total size of the class files retained for all transplants */
+    val donorClassfileBytes: Long
+}
+
+/**
+ * Counters and latency histograms of the agent. Recording is backed by
+ * striped counters; nothing is allocated when classes are rejected by
+ * the fast path.
+ */
+class GraftStats : GraftStatsMXBean {
+    private val seen = LongAdder()
+    private val rejected = LongAdder()
+    private val applied = LongAdder()
+    private val failures = LongAdder()
+    private val invalid = LongAdder()
+    private val hits = LongAdder()
+    private val prebaked = LongAdder()
+    private val stale = LongAdder()
+
+    private val phases = Phase.values().map { Histogram() }
+    private val recipients = ConcurrentHashMap<String, RecipientStats>()
+
+    override val classesSeen: Long         get() = seen.sum()
+    override val classesRejected: Long     get() = rejected.sum()
+    override val transplantsApplied: Long  get() = applied.sum()
+    override val transplantFailures: Long  get() = failures.sum()
+    override val verificationFailures: Long get() = invalid.sum()
+    override val cacheHits: Long           get() = hits.sum()
+    override val prebakedHits: Long        get() = prebaked.sum()
+    override val prebakedMismatches: Long  get() = stale.sum()
+
+    @Volatile
+    override var startupNanos: Long = 0
+        internal set
+
+    override val phaseCount: Map<String, Long>
+        get() = phaseStats { it.count }
+    override val phaseTotalNanos: Map<String, Long>
+        get() = phaseStats { it.total }
+    override val phaseMedianNanos: Map<String, Long>
+        get() = phaseStats { it.percentile(0.5) }
+    override val phaseP99Nanos: Map<String, Long>
+        get() = phaseStats { it.percentile(0.99) }
+
+    override val recipientNanos: Map<String, Long>
+        get() = recipients.mapValues { (_, stats) -> stats.nanos.sum() }
+
+    /** supplied by the owning [GraftTransformer] */
+    internal var donorMemory: () -> DonorMemory = { DonorMemory(0, 0, 0) }
+
+    override val donors: Int               get() = donorMemory().donors
+    override val donorsParsed: Int         get() = donorMemory().parsed
+    override val donorClassfileBytes: Long get() = donorMemory().classfileBytes
+
+    fun seen() = seen.increment()
+    fun rejected() = rejected.increment()
+    fun applied() = applied.increment()
+    fun failed() = failures.increment()
+    fun verificationFailed() = invalid.increment()
+    fun cacheHit() = hits.increment()
+    fun prebakedHit() = prebaked.increment()
+    fun prebakedMismatch() = stale.increment()
+
+    /** records phases both globally and for [recipient] */
+    fun recipient(recipient: String): PhaseListener =
+        recipients.computeIfAbsent(recipient) { RecipientStats() }
+
+    /** registers under `net.onedaybeard.graftt:type=GraftStats` */
+    fun registerMBean() {
+        ManagementFactory.getPlatformMBeanServer()
+            .registerMBean(this, ObjectName("net.onedaybeard.graftt:type=GraftStats"))
+    }
+
+    private fun phaseStats(f: (Histogram) -> Long): Map<String, Long> =
+        Phase.values().associate { it.name.toLowerCase() to f(phases[it.ordinal]) }
+
+    private inner class RecipientStats : PhaseListener {
+        val nanos = LongAdder()
+
+        override fun onPhase(phase: Phase, nanos: Long) {
+            phases[phase.ordinal].record(nanos)
+            this.nanos.add(nanos)
+        }
+    }
+}
+
+/** log2-bucketed histogram; bucket `i` holds samples below `2^i` */
+private class Histogram {
+    private val buckets = Array(64) { LongAdder() }
+    private val sum = LongAdder()
+
+    val count: Long
+        get() = buckets.fold(0L) { acc, bucket -> acc + bucket.sum() }
+
+    val total: Long
+        get() = sum.sum()
+
+    fun record(value: Long) {
+        buckets[64 - java.lang.Long.numberOfLeadingZeros(value.coerceAtLeast(0))].increment()
+        sum.add(value)
+    }
+
+    fun percentile(p: Double): Long {
+        val counts = buckets.map(LongAdder::sum)
+        val threshold = (counts.sum() * p).toLong()
+
+        var seen = 0L
+        counts.forEachIndexed { i, n ->
+            seen += n
+            if (n > 0 && seen > threshold)
+                return 1L shl i
+        }
+
+        return 0
+    }
+}
@@ -1,85 +1,291 @@
 package net.onedaybeard.graftt.agent
 
 import com.github.michaelbull.result.*
+import net.onedaybeard.graftt.IndexEntry
 import net.onedaybeard.graftt.Msg
-import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.PrebakedClass
 import net.onedaybeard.graftt.asm.toBytes
-import net.onedaybeard.graftt.classNodes
-import net.onedaybeard.graftt.graft.isTransplant
+import net.onedaybeard.graftt.contentHash
+import net.onedaybeard.graftt.donorsHash
+import net.onedaybeard.graftt.graft.Discovered
+import net.onedaybeard.graftt.graft.Verification
+import net.onedaybeard.graftt.graft.discover
+import net.onedaybeard.graftt.graft.discoverTransplants
+import net.onedaybeard.graftt.graft.isTransplantCandidate
 import net.onedaybeard.graftt.graft.readRecipientName
 import net.onedaybeard.graftt.graft.transplant
+import net.onedaybeard.graftt.isBinaryIndex
 import net.onedaybeard.graftt.makeLogger
-import org.objectweb.asm.commons.SimpleRemapper
+import net.onedaybeard.graftt.readIndex
+import net.onedaybeard.graftt.readPrebaked
 import org.objectweb.asm.tree.ClassNode
 import java.io.File
+import java.io.FileNotFoundException
 import java.lang.instrument.ClassFileTransformer
 import java.net.URL
 import java.security.ProtectionDomain
+import java.util.concurrent.Callable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
 
-class GraftTransformer : ClassFileTransformer {
+class GraftTransformer(
+    /** grafted classes from previous runs, if any */
+    val cache: TransformCache? = null,
+    val stats: GraftStats = GraftStats(),
+    val verify: VerifyMode = VerifyMode.FULL,
+    /**
+     * Keeps donors parsed after grafting their recipient; worthwhile when
+     * recipients are retransformed. Otherwise, only class files are retained.
+     */
+    val retainParsedDonors: Boolean = false,
+    /** classes to transform and transplants to register */
+    val scope: TransformScope = TransformScope.ALL
+) : ClassFileTransformer {
     val log = makeLogger()
 
-    val transplants: MutableMap<String, ClassNode> = mutableMapOf()
-    val mapping: MutableMap<String, String> = mutableMapOf()
+    /** only for [VerifyMode.ASYNC] */
+    val verifier = AsyncVerifier(stats).takeIf { verify == VerifyMode.ASYNC }
+
+    val registry = TransplantRegistry()
+
+    /** donors keyed by recipient name, ordered by donor name */
+    val transplants: Map<String, List<Donor>>
+        get() = registry.transplants
+
+    /** donor names mapped to recipient names */
+    val mapping: Map<String, String>
+        get() = registry.mapping
 
     init {
-        log.info { "initializing graftt agent..." }
+        stats.donorMemory = registry::memory
+        log.info { "initializing graftt agent... (verify=${verify.key})" }
+        cache?.let { log.info { "caching transplanted classes in: ${it.dir}" } }
     }
 
+    /** recipients grafted at build time, keyed by recipient name */
+    @Volatile
+    private var prebaked: Map<String, PrebakedClass> = mapOf()
+
+    /** recipients with transplants still being prepared by [registerAsync] */
+    private val pending = ConcurrentHashMap<String, CompletableFuture<Unit>>()
+
     fun register(root: File) {
-        classNodes(root)
-            .filter(ClassNode::isTransplant)
+        discoverTransplants(root)
             .forEach(::register)
     }
 
+    /**
+     * Registers all transplants under [roots] using [threads] workers.
+     *
+     * Returns once class headers are scanned and all recipients are known;
+     * the scan is the bulk of the work, so callers still wait for most of
+     * it. Transplants are hashed and registered in the background, one task
+     * per recipient; [transform] only blocks when loading a recipient whose
+     * transplants are still being prepared.
+     *
+     * The scan itself can't be deferred: until it completes, any class
+     * could be a recipient, and blocking class loading on worker threads,
+     * which load classes of their own, risks deadlocking.
+     */
+    fun registerAsync(roots: List<File>, threads: Int = DISCOVERY_THREADS) {
+        val pool = Executors.newFixedThreadPool(threads) { r ->
+            Thread(r, "graftt-discovery").apply { isDaemon = true }
+        }
+
+        val discovered = roots
+            .flatMap(::discoveryTasks)
+            .map { task -> pool.submit(Callable(task)) }
+            .flatMap { it.get() }
+
+        discovered
+            .filter(::inScope)
+            .groupBy(Discovered::recipient)
+            .forEach { (recipient, transplants) ->
+                val prepared = CompletableFuture<Unit>()
+                pending[recipient] = prepared
+                pool.execute {
+                    try {
+                        transplants.forEach(::register)
+                    } catch (e: Exception) {
+                        log.error(e) { "failed registering transplants for $recipient" }
+                    } finally {
+                        pending.remove(recipient, prepared)
+                        prepared.complete(Unit)
+                    }
+                }
+            }
+
+        pool.shutdown()
+    }
+
+    private fun register(transplant: Discovered) {
+        if (inScope(transplant))
+            register(Donor(transplant.classfile), transplant.recipient)
+    }
+
+    private fun inScope(transplant: Discovered) =
+        scope.accepts(transplant.recipient, transplant.profiles)
+
     fun register(donor: ClassNode) {
-        register(donor, readRecipientName(donor).unwrap())
+        register(Donor(donor.toBytes()), readRecipientName(donor).unwrap())
     }
 
-    fun register(donor: ClassNode, recipient: String) {
+    fun register(donor: Donor, recipient: String) {
         log.info { "registering transplant: ${donor.name} -> $recipient" }
-        transplants[recipient] = donor
-        mapping[donor.name] = recipient
+        registry.register(donor, recipient)
+    }
+
+    /**
+     * Registers the transplant in [classfile] unless already registered
+     * with identical content.
+     *
+     * @return the recipient if the transplant was registered, `null` if unchanged
+     *         or not a transplant
+     */
+    fun registerChanged(classfile: ByteArray): String? {
+        val transplant = discover(classfile)?.takeIf(::inScope) ?: return null
+        val donor = Donor(classfile)
+
+        val registered = registry.transplants[transplant.recipient]?.find { it.name == donor.name }
+        if (registered?.digest?.contentEquals(donor.digest) == true)
+            return null
+
+        register(donor, transplant.recipient)
+        return transplant.recipient
+    }
+
+    /**
+     * Searches classpath for `/graftt.index`. Transplants are read as resources;
+     * they are never loaded as classes.
+     */
+    fun registerTransplantIndices(
+        classLoader: ClassLoader = ClassLoader.getSystemClassLoader()
+    ) {
+        fun classfile(name: String) = classLoader
+            .getResource("$name.class")
+            ?.readBytes()
+            ?: throw FileNotFoundException("transplant listed in graftt.index: $name")
+
+        fun register(entry: IndexEntry) {
+            if (!scope.accepts(entry.recipient, entry.profiles))
+                return
+
+            val classfile = entry.classfile ?: classfile(entry.donor)
+            val digest = contentHash(classfile)
+            if (!digest.contentEquals(entry.hash))
+                log.warn { "graftt.index is out of date: ${entry.donor}" }
+
+            register(Donor(classfile, digest), entry.recipient)
+        }
+
+        for (index in loadResources("graftt.index", classLoader)) {
+            if (isBinaryIndex(index)) {
+                readIndex(index).forEach(::register)
+            } else {
+                String(index).lines()
+                    .filterNot { line -> line.startsWith("#") }
+                    .filter(String::isNotBlank)
+                    .map { qualifiedName -> qualifiedName.trim().replace('.', '/') }
+                    .map { name -> discover(classfile(name)) ?: throw IllegalStateException("not a transplant: $name") }
+                    .forEach { transplant -> this.register(transplant) }
+            }
+        }
+    }
+
+    /**
+     * Searches classpath for `/graftt.prebaked`, holding recipients grafted
+     * by `graftt-maven-plugin:prebake`. Prebaked recipients are served by
+     * [transform] without grafting, as long as the recipient class file and
+     * its registered transplants, if any, are unchanged since the build.
+     */
+    fun registerPrebaked(
+        classLoader: ClassLoader = ClassLoader.getSystemClassLoader()
+    ) {
+        val classes = loadResources("graftt.prebaked", classLoader)
+            .flatMap { archive -> readPrebaked(archive).values }
+            .filter { prebaked -> scope.accepts(prebaked.recipient, listOf()) }
+
+        classes.forEach { log.info { "registering prebaked recipient: ${it.recipient}" } }
+        prebaked = prebaked + classes.associateBy(PrebakedClass::recipient)
     }
 
     override fun transform(
         loader: ClassLoader?,
-        className: String,
+        className: String?,
         classBeingRedefined: Class<*>?,
         protectionDomain: ProtectionDomain?,
         classfileBuffer: ByteArray
-    ): ByteArray {
+    ): ByteArray? {
+
+        stats.seen()
+
+        if (className != null && !scope.accepts(loader, className)) {
+            stats.rejected()
+            return null
+        }
+
+        // transplants of this class are still being registered
+        className?.let(pending::get)?.join()
 
-        val cn = classNode(classfileBuffer)
+        // grafted at build time; no parsing involved
+        prebaked[className]?.let { baked ->
+            val donorsHash = registry.transplants[className]?.map(Donor::digest)?.let(::donorsHash)
+            if (baked.matches(classfileBuffer, donorsHash)) {
+                stats.prebakedHit()
+                return baked.classfile
+            }
+
+            stats.prebakedMismatch()
+            log.warn { "prebaked recipient is out of date, grafting: $className" }
+        }
+
+        // fast path: neither a known recipient nor a transplant
+        val candidate = isTransplantCandidate(classfileBuffer)
+        if (className !in registry && !candidate) {
+            stats.rejected()
+            return null
+        }
+
+        val snapshot = registry.snapshot()
+        val donors = snapshot.transplants[className]
 
         // check if class is in fact a transplant
-        readRecipientName(cn)
-            .onSuccess { recipient -> register(cn, recipient) }
-
-        return transplants[className]?.let { donor ->
-            transplant(donor, cn, SimpleRemapper(mapping))
-                .map(ClassNode::toBytes)
-                .mapError(Msg::toException)
-                .onFailure { log.error(it) { "failed transplant: ${donor.name} -> $className" } }
-                .onSuccess { log.info { "transplant complete: ${donor.name} -> $className" } }
-                .get()
-        } ?: classfileBuffer
-    }
-}
+        if (candidate)
+            discover(classfileBuffer)?.let(::register)
 
-/** searches classpath for `/graftt.index */
-fun registerTransplantIndices() {
-    loadResources("graftt.index")
-        .map { index -> String(index) }
-        .flatMap(String::lines)
-        .filterNot { line -> line.startsWith("#") }
-        .filter(String::isNotBlank)
-        .map { Class.forName(it) } // registers via classloader
+        donors ?: return null
+
+        // grafted by a previous run
+        val key = cache?.key(classfileBuffer, donors.map(Donor::digest), snapshot.mappingOf(donors))
+        key?.let { cache!![it] }?.let { bytes ->
+            stats.cacheHit()
+            return bytes
+        }
+
+        // streamed; only the transplanted members are parsed into nodes
+        val names = donors.joinToString(transform = Donor::name)
+        val phases = stats.recipient(className!!)
+        // only verified classes are cached; async verification caches once the class passes
+        fun store(bytes: ByteArray) { key?.let { cache!![it] = bytes } }
+
+        return transplant(donors.map(Donor::node), classfileBuffer, snapshot.remapper, phases, verify.inline)
+            .onFailure { msg -> if (msg is Msg.ClassVerificationError) stats.verificationFailed() }
+            .onSuccess { bytes -> verifier?.submit(className, bytes, phases, ::store) }
+            .mapError(Msg::toException)
+            .onFailure { stats.failed() }
+            .onFailure { log.error(it) { "failed transplant: $names -> $className" } }
+            .onSuccess { stats.applied() }
+            .onSuccess { log.info { "transplant complete: $names -> $className" } }
+            .onSuccess { bytes -> if (verify.inline != Verification.OFF) store(bytes) }
+            .also { if (!retainParsedDonors) donors.forEach(Donor::release) }
+            .get()
+    }
 }
 
 private fun loadResources(
     name: String,
-    classLoader: ClassLoader = ClassLoader.getSystemClassLoader()
+    classLoader: ClassLoader
 ): List<ByteArray> {
     return classLoader
         .getResources(name)
@@ -0,0 +1,186 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.contentHash
+import net.onedaybeard.graftt.graft.Verification
+import net.onedaybeard.graftt.makeLogger
+import java.io.File
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import java.nio.file.attribute.FileTime
+import java.util.concurrent.atomic.AtomicLong
+
+const val DEFAULT_CACHE_SIZE: Long = 64L * 1024 * 1024
+
+private const val EXTENSION = ".class"
+
+/**
+ * Grafted class files persisted across JVM runs, stored under [dir].
+ * Entries are keyed on everything the output depends on: the recipient,
+ * its donors, the transplant to recipient mapping referenced by the donors
+ * and the graftt version; see [key]. Scope and profiles only decide which
+ * donors are registered, so they are covered by the donors.
+ *
+ * Several JVMs may share the same [dir]. Entries are written to a temporary
+ * file before being atomically moved into place, so readers only ever see
+ * complete entries. When the cache grows beyond [maxBytes], the least
+ * recently used entries are evicted.
+ */
+class TransformCache(
+    val dir: File,
+    val maxBytes: Long = DEFAULT_CACHE_SIZE
+) {
+    private val log = makeLogger()
+    private val root: Path = Files.createDirectories(dir.toPath())
+
+    /** approximate, as other JVMs may be writing to the same directory */
+    private val size = AtomicLong(entries().sumByLong { it.size })
+
+    init {
+        deleteStaleTempFiles()
+    }
+
+    /**
+     * Cache key for grafting [donors] onto [recipient], where [mapping] holds
+     * the transplant to recipient names substituted while grafting; see
+     * [TransplantRegistry.Snapshot.mappingOf].
+     */
+    fun key(recipient: ByteArray, donors: List<ByteArray>, mapping: Map<String, String> = mapOf()): String {
+        val remapped = mapping.toSortedMap()
+            .entries.joinToString("") { (transplant, target) -> "$transplant=$target\n" }
+            .toByteArray()
+
+        return contentHash(graftVersion.toByteArray(), remapped, recipient, *donors.toTypedArray())
+            .joinToString("") { "%02x".format(it) }
+    }
+
+    operator fun get(key: String): ByteArray? {
+        val entry = root.resolve(key + EXTENSION)
+        return try {
+            Files.readAllBytes(entry)
+                .also { Files.setLastModifiedTime(entry, now()) } // for LRU
+        } catch (e: NoSuchFileException) {
+            null
+        } catch (e: IOException) {
+            log.warn(e) { "unable to read cache entry: $entry" }
+            null
+        }
+    }
+
+    operator fun set(key: String, bytes: ByteArray) {
+        var tmp: Path? = null
+        try {
+            tmp = Files.createTempFile(root, key, ".tmp")
+            Files.write(tmp, bytes)
+            Files.move(tmp, root.resolve(key + EXTENSION), ATOMIC_MOVE)
+        } catch (e: IOException) {
+            log.warn(e) { "unable to write cache entry: $key" }
+            tmp?.let(Files::deleteIfExists)
+            return
+        }
+
+        if (size.addAndGet(bytes.size.toLong()) > maxBytes)
+            evict()
+    }
+
+    /** removes least recently used entries until below 3/4 of [maxBytes] */
+    @Synchronized
+    private fun evict() {
+        val entries = entries().sortedBy { it.lastModified }
+        var total = entries.sumByLong { it.size }
+
+        for (entry in entries) {
+            if (total <= maxBytes / 4 * 3)
+                break
+
+            try {
+                if (Files.deleteIfExists(entry.path))
+                    total -= entry.size
+            } catch (e: IOException) {
+                log.debug(e) { "unable to evict: ${entry.path}" } // in use by other JVM
+            }
+        }
+
+        size.set(total)
+    }
+
+    /** left behind by JVMs terminating mid-write */
+    private fun deleteStaleTempFiles() {
+        val threshold = System.currentTimeMillis() - 60 * 60 * 1000
+        Files.newDirectoryStream(root, "*.tmp").use { paths ->
+            paths.filter { it.toFile().lastModified() < threshold }
+                .forEach { Files.deleteIfExists(it) }
+        }
+    }
+
+    private fun entries(): List<Entry> {
+        return Files.newDirectoryStream(root, "*$EXTENSION").use { paths ->
+            paths.mapNotNull { path ->
+                try {
+                    Entry(path, Files.size(path), Files.getLastModifiedTime(path))
+                } catch (e: NoSuchFileException) {
+                    null // evicted by other JVM
+                }
+            }
+        }
+    }
+
+    private class Entry(val path: Path, val size: Long, val lastModified: FileTime)
+}
+
+/** parses sizes such as `512k`, `64m` and `1g` */
+fun parseSize(size: String): Long {
+    val unit = when (size.last().toLowerCase()) {
+        'k'  -> 1024L
+        'm'  -> 1024L * 1024
+        'g'  -> 1024L * 1024 * 1024
+        else -> return size.toLong()
+    }
+
+    return size.dropLast(1).toLong() * unit
+}
+
+/**
+ * Part of the cache key. Without a version to go by, as when running from
+ * class directories, the code of the agent and core is hashed instead.
+ */
+internal val graftVersion: String =
+    TransformCache::class.java.`package`?.implementationVersion
+        ?: "dev-" + codeDigest(codeSources(TransformCache::class.java, Verification::class.java))
+
+/** jars or class directories [classes] are loaded from, if known */
+private fun codeSources(vararg classes: Class<*>): List<File> = try {
+    classes.mapNotNull { it.protectionDomain.codeSource?.location }
+        .map { File(it.toURI()) }
+        .distinct()
+} catch (e: Exception) {
+    listOf()
+}
+
+/** hex [contentHash] of [sources], jars or class directories */
+internal fun codeDigest(sources: List<File>): String {
+    val chunks = sources.flatMap { source ->
+        if (source.isDirectory) {
+            source.walk()
+                .filter(File::isFile)
+                .map { file -> file.relativeTo(source).invariantSeparatorsPath to file }
+                .sortedBy { (path, _) -> path }
+                .flatMap { (path, file) -> sequenceOf(path.toByteArray(), file.readBytes()) }
+                .toList()
+        } else {
+            listOf(source.readBytes())
+        }
+    }
+
+    return contentHash(*chunks.toTypedArray()).joinToString("") { "%02x".format(it) }
+}
+
+private fun now() = FileTime.fromMillis(System.currentTimeMillis())
+
+private inline fun <T> Iterable<T>.sumByLong(selector: (T) -> Long): Long {
+    var sum = 0L
+    for (t in this) sum += selector(t)
+    return sum
+}
@@ -0,0 +1,79 @@
+package net.onedaybeard.graftt.agent
+
+/**
+ * Limits which classes the agent transforms and which transplants it
+ * registers. Transplants outside of the scope are never parsed.
+ */
+class TransformScope(
+    val packages: PackageFilter = PackageFilter(),
+    /** class loaders whose class name starts with any of these are skipped; `bootstrap` for `null` */
+    val excludedLoaders: List<String> = listOf(),
+    /** active `Graft.Profile`s */
+    val profiles: Set<String> = setOf()
+) {
+    private val skipBootstrap = "bootstrap" in excludedLoaders
+
+    /** evaluated once per class loader type */
+    private val loaderExcluded = object : ClassValue<Boolean>() {
+        override fun computeValue(type: Class<*>): Boolean =
+            excludedLoaders.any { type.name.startsWith(it) }
+    }
+
+    /** true if [className], as defined by [loader], may be transformed */
+    fun accepts(loader: ClassLoader?, className: String): Boolean = when (loader) {
+        null -> !skipBootstrap && className in packages
+        else -> !loaderExcluded.get(loader.javaClass) && className in packages
+    }
+
+    /** true if a transplant into [recipient] with [donorProfiles] is to be registered */
+    fun accepts(recipient: String, donorProfiles: List<String>): Boolean =
+        recipient in packages && (donorProfiles.isEmpty() || donorProfiles.any(profiles::contains))
+
+    companion object {
+        val ALL = TransformScope()
+    }
+}
+
+/**
+ * Package prefix include/exclude rules, compiled into a prefix trie over
+ * internal class names. Matching walks the class name once, regardless
+ * of the number of rules; the longest matching rule wins. Without any
+ * includes, all packages not excluded are accepted.
+ */
+class PackageFilter(
+    includes: List<String> = listOf(),
+    excludes: List<String> = listOf()
+) {
+    private val root = Node()
+    private val acceptUnmatched = includes.isEmpty()
+
+    init {
+        includes.forEach { insert(it, include = true) }
+        excludes.forEach { insert(it, include = false) }
+    }
+
+    operator fun contains(className: String): Boolean {
+        var node = root
+        var accepted = root.include ?: acceptUnmatched
+        for (c in className) {
+            node = node.children[c] ?: return accepted
+            node.include?.let { accepted = it }
+        }
+
+        return accepted
+    }
+
+    /** `com.foo` and `com/foo` both match classes in `com/foo` and its sub-packages */
+    private fun insert(prefix: String, include: Boolean) {
+        val rule = prefix.replace('.', '/').trimEnd('/')
+        val path = if (rule == "") "" else "$rule/"
+        path.fold(root) { node, c -> node.children.getOrPut(c, ::Node) }
+            .include = include
+    }
+
+    private class Node {
+        val children = HashMap<Char, Node>(4)
+        /** rule terminating at this node, if any */
+        var include: Boolean? = null
+    }
+}
@@ -0,0 +1,125 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.asm.constantPoolTypes
+import net.onedaybeard.graftt.contentHash
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.commons.Remapper
+import org.objectweb.asm.commons.SimpleRemapper
+import org.objectweb.asm.tree.ClassNode
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Transplant as registered with the agent. Only the class file is retained
+ * for the life of the agent; [node] is parsed on first use and dropped by
+ * [release] once the recipient is grafted.
+ */
+class Donor(
+    /** class file of the transplant */
+    val classfile: ByteArray,
+    /** content hash of [classfile] */
+    val digest: ByteArray = contentHash(classfile)
+) {
+    val name: String = ClassReader(classfile).className
+
+    /** types possibly referenced by the transplant, see [constantPoolTypes] */
+    val references: Set<String> = constantPoolTypes(classfile)
+
+    @Volatile
+    private var parsed: ClassNode? = null
+
+    /** parses [classfile] unless already parsed */
+    val node: ClassNode
+        get() = parsed ?: classNode(classfile).also { parsed = it }
+
+    val isParsed: Boolean
+        get() = parsed != null
+
+    /** drops the parsed [node]; parsed again if needed by a later transform */
+    fun release() {
+        parsed = null
+    }
+}
+
+/** retained memory of registered donors */
+data class DonorMemory(
+    val donors: Int,
+    /** donors currently holding a parsed [ClassNode] */
+    val parsed: Int,
+    /** total size of retained class files */
+    val classfileBytes: Long
+)
+
+/**
+ * Transplants known to the agent, safe for use by parallel-capable
+ * class loaders.
+ *
+ * Registrations are rare compared to lookups, so the registry is
+ * copy-on-write: each [register] publishes a new immutable [Snapshot]
+ * with a compare-and-set. Readers never block and always observe a
+ * consistent donor/remapper pair.
+ */
+class TransplantRegistry {
+    private val state = AtomicReference(Snapshot(mapOf(), mapOf()))
+
+    /** donors keyed by recipient name, ordered by donor name */
+    val transplants: Map<String, List<Donor>>
+        get() = state.get().transplants
+
+    /** donor names mapped to recipient names */
+    val mapping: Map<String, String>
+        get() = state.get().mapping
+
+    /** current state; hold on to it for the duration of a single transform */
+    fun snapshot(): Snapshot = state.get()
+
+    operator fun contains(recipient: String?) = recipient in state.get().transplants
+
+    fun memory(): DonorMemory {
+        val donors = state.get().transplants.values.flatten()
+        return DonorMemory(
+            donors = donors.size,
+            parsed = donors.count(Donor::isParsed),
+            classfileBytes = donors.fold(0L) { acc, d -> acc + d.classfile.size })
+    }
+
+    /** replaces any previously registered donor with the same name */
+    fun register(donor: Donor, recipient: String) {
+        state.updateAndGet { it.with(donor, recipient) }
+    }
+
+    /** immutable view of all registered transplants */
+    class Snapshot internal constructor(
+        val transplants: Map<String, List<Donor>>,
+        val mapping: Map<String, String>
+    ) {
+        /** substitutes transplant types with their recipients */
+        val remapper: Remapper = SimpleRemapper(mapping)
+
+        /** [mapping] entries referenced by [donors]: all the [remapper] can apply when grafting them */
+        fun mappingOf(donors: List<Donor>): Map<String, String> = donors
+            .flatMap(Donor::references)
+            .mapNotNull { type -> mapping[type]?.let { recipient -> type to recipient } }
+            .toMap()
+
+        /** registers [donor] for [recipient], dropping it from any recipient it previously targeted */
+        internal fun with(donor: Donor, recipient: String): Snapshot {
+            val others = when (val previous = mapping[donor.name]) {
+                null -> transplants
+                else -> {
+                    val remaining = (transplants[previous] ?: listOf()).filterNot { it.name == donor.name }
+                    if (remaining.isEmpty()) transplants - previous else transplants + (previous to remaining)
+                }
+            }
+
+            val donors = (others[recipient] ?: listOf())
+                .plus(donor)
+                .sortedBy(Donor::name)
+
+            return Snapshot(
+                others + (recipient to donors),
+                (mapping - donor.name) + (donor.name to recipient))
+        }
+    }
+}
+
@@ -0,0 +1,144 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.classfiles
+import net.onedaybeard.graftt.makeLogger
+import java.io.Closeable
+import java.io.File
+import java.nio.file.*
+import java.nio.file.StandardWatchEventKinds.ENTRY_CREATE
+import java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY
+import java.util.concurrent.TimeUnit
+
+/** classes passed to each `retransformClasses` call */
+const val RETRANSFORM_BATCH_SIZE = 32
+
+/**
+ * Watches the `cp` roots for changed transplants. Changed transplants are
+ * re-registered with [transformer], after which already loaded recipients
+ * are retransformed, [RETRANSFORM_BATCH_SIZE] classes at a time.
+ *
+ * Retransformation starts from the original class file of the recipient,
+ * never from previously grafted bytes. The JVM does not permit adding or
+ * removing members of loaded classes: only changes to method bodies and
+ * annotations of transplants can be applied to already loaded recipients.
+ */
+class TransplantWatcher(
+    val transformer: GraftTransformer,
+    roots: List<File>,
+    /** all classes eligible for retransformation */
+    private val loadedClasses: () -> List<Class<*>>,
+    private val retransform: (Array<Class<*>>) -> Unit
+) : Closeable {
+    private val log = makeLogger()
+
+    private val roots = roots.map(File::getAbsoluteFile)
+    private val watcher = FileSystems.getDefault().newWatchService()
+    private val thread = Thread(::watch, "graftt-watch").apply { isDaemon = true }
+
+    init {
+        this.roots.forEach { root ->
+            if (root.isDirectory)
+                root.walk().filter(File::isDirectory).forEach(::watchDirectory)
+            else
+                watchDirectory(root.parentFile)
+        }
+    }
+
+    fun start() = apply { thread.start() }
+
+    override fun close() {
+        thread.interrupt()
+        watcher.close()
+    }
+
+    /**
+     * Re-registers transplants among [changed] files whose content differs
+     * from the registered donor, then retransforms their recipients.
+     *
+     * @return internal names of affected recipients
+     */
+    fun reload(changed: Collection<File>): Set<String> {
+        val recipients = changed
+            .flatMap(::readClassfiles)
+            .mapNotNull(transformer::registerChanged)
+            .toSet()
+
+        if (recipients.isNotEmpty())
+            retransformRecipients(recipients)
+
+        return recipients
+    }
+
+    private fun retransformRecipients(recipients: Set<String>) {
+        val names = recipients.map { it.replace('/', '.') }.toSet()
+        loadedClasses()
+            .filter { it.name in names }
+            .chunked(RETRANSFORM_BATCH_SIZE)
+            .forEach { batch ->
+                log.info { "retransforming: ${batch.joinToString(transform = Class<*>::getName)}" }
+                try {
+                    retransform(batch.toTypedArray())
+                } catch (e: Exception) {
+                    // e.g. UnsupportedOperationException when members were added
+                    log.error(e) { "failed retransforming: ${batch.joinToString(transform = Class<*>::getName)}" }
+                }
+            }
+    }
+
+    private fun readClassfiles(file: File): List<ByteArray> = when {
+        !file.isFile               -> listOf()
+        file.extension == "class" -> listOf(file.readBytes())
+        file.extension == "jar"   -> classfiles(file)
+        else                      -> listOf()
+    }
+
+    private fun watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted) {
+                val changed = mutableSetOf<File>()
+                var key: WatchKey? = watcher.take()
+
+                // coalesce bursts of events, e.g. a rebuild touching many files
+                while (key != null) {
+                    changed += events(key)
+                    key = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)
+                }
+
+                try {
+                    reload(changed.filter(::isWatched))
+                } catch (e: Exception) {
+                    // e.g. a class file caught mid-write; reloaded on its next event
+                    log.warn(e) { "failed reloading transplants: $changed" }
+                }
+            }
+        } catch (e: InterruptedException) {
+            // closed
+        } catch (e: ClosedWatchServiceException) {
+            // closed
+        }
+    }
+
+    private fun events(key: WatchKey): List<File> {
+        val dir = key.watchable() as Path
+        val files = key.pollEvents()
+            .mapNotNull { event -> event.context() as? Path }
+            .map { dir.resolve(it).toFile() }
+
+        key.reset()
+
+        // new package directories under a watched root
+        files.filter(File::isDirectory).forEach(::watchDirectory)
+        return files.flatMap { if (it.isDirectory) it.walk().filter(File::isFile).toList() else listOf(it) }
+    }
+
+    private fun isWatched(file: File) =
+        roots.any { root -> file == root || file.startsWith(root) }
+
+    private fun watchDirectory(dir: File) {
+        dir.toPath().register(watcher, ENTRY_CREATE, ENTRY_MODIFY)
+    }
+
+    private companion object {
+        const val DEBOUNCE_MILLIS = 200L
+    }
+}
@@ -0,0 +1,70 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.graft.discover
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+class DiscoveryTests {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    @Test
+    fun `only transplants are discovered`() {
+        assertNull(discover(recipientBytes("discovery/Foo")))
+
+        val transplant = discover(donorBytes("discovery/FooTransplant", "discovery/Foo"))
+        assertNotNull(transplant)
+        assertEquals("discovery/Foo", transplant.recipient)
+    }
+
+    @Test
+    fun `directories and jars are discovered in parallel`() {
+        val dir = tmp.newFolder("classes")
+        (0 until 600).forEach { i ->
+            dir.resolve("discovery/Dir${i}Transplant.class")
+                .apply { parentFile.mkdirs() }
+                .writeBytes(donorBytes("discovery/Dir${i}Transplant", "discovery/Dir$i", "java/io/Serializable"))
+        }
+
+        val jar = jar(tmp.newFile("transplants.jar"), (0 until 100).associate { i ->
+            "discovery/Jar${i}Transplant" to donorBytes("discovery/Jar${i}Transplant", "discovery/Jar$i")
+        })
+
+        // three directory chunks, one jar
+        assertEquals(4, listOf(dir, jar).flatMap(::discoveryTasks).size)
+
+        val transformer = GraftTransformer().apply { registerAsync(listOf(dir, jar), threads = 4) }
+
+        // recipients block until their transplants are registered
+        (0 until 600).forEach { i ->
+            val grafted = transformer.transform("discovery/Dir$i", recipientBytes("discovery/Dir$i"))
+            assertEquals(listOf("java/io/Serializable"), classNode(grafted!!).interfaces)
+        }
+        (0 until 100).forEach { i ->
+            assertNotNull(transformer.transform("discovery/Jar$i", recipientBytes("discovery/Jar$i")))
+        }
+
+        assertEquals(700, transformer.mapping.size)
+    }
+
+    private fun jar(file: File, classes: Map<String, ByteArray>): File {
+        JarOutputStream(file.outputStream()).use { out ->
+            classes.forEach { (name, bytes) ->
+                out.putNextEntry(JarEntry("$name.class"))
+                out.write(bytes)
+                out.closeEntry()
+            }
+        }
+
+        return file
+    }
+}
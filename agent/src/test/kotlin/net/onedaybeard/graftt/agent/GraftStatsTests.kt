@@ -0,0 +1,45 @@
+package net.onedaybeard.graftt.agent
+
+import org.junit.Test
+import java.lang.management.ManagementFactory
+import javax.management.ObjectName
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class GraftStatsTests {
+
+    @Test
+    fun `stats record rejected and transplanted classes`() {
+        val transformer = GraftTransformer()
+        transformer.transform("stats/Unrelated", recipientBytes("stats/Unrelated"))
+        transformer.transform("stats/FooTransplant", donorBytes("stats/FooTransplant", "stats/Foo"))
+        transformer.transform("stats/Foo", recipientBytes("stats/Foo"))
+
+        val stats = transformer.stats
+        assertEquals(3, stats.classesSeen)
+        assertEquals(1, stats.classesRejected)
+        assertEquals(1, stats.transplantsApplied)
+        assertEquals(0, stats.transplantFailures)
+
+        assertEquals(setOf("stats/Foo"), stats.recipientNanos.keys)
+        listOf("parse", "remap", "surgery", "verify", "serialize").forEach { phase ->
+            assertEquals(1, stats.phaseCount[phase], phase)
+            assertTrue(stats.phaseMedianNanos.getValue(phase) >= stats.phaseTotalNanos.getValue(phase))
+        }
+    }
+
+    @Test
+    fun `stats are exposed over jmx`() {
+        val transformer = GraftTransformer()
+        transformer.transform("jmx/Unrelated", recipientBytes("jmx/Unrelated"))
+        transformer.stats.registerMBean()
+
+        val name = ObjectName("net.onedaybeard.graftt:type=GraftStats")
+        val server = ManagementFactory.getPlatformMBeanServer()
+        try {
+            assertEquals(1L, server.getAttribute(name, "ClassesRejected"))
+        } finally {
+            server.unregisterMBean(name)
+        }
+    }
+}
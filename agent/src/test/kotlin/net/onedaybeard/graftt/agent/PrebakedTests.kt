@@ -0,0 +1,83 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.PrebakedClass
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.contentHash
+import net.onedaybeard.graftt.donorsHash
+import net.onedaybeard.graftt.writePrebaked
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.net.URLClassLoader
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class PrebakedTests {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    private val recipient = recipientBytes("baked/Foo")
+    private val donor = donorBytes("baked/FooTransplant", "baked/Foo", "java/io/Serializable")
+
+    /** not a class file; proves the prebaked bytes are returned verbatim */
+    private val baked = byteArrayOf(0xc, 0xa, 0xf, 0xe)
+
+    @Test
+    fun `prebaked recipients are served without transplants`() {
+        writePrebaked(donorsHash(listOf()))
+
+        val transformer = GraftTransformer()
+        transformer.registerPrebaked(classLoader())
+
+        assertEquals(baked.toList(), transformer.transform("baked/Foo", recipient)?.toList())
+        assertEquals(1, transformer.stats.prebakedHits)
+        assertEquals(0, transformer.stats.transplantsApplied)
+    }
+
+    @Test
+    fun `prebaked recipients are served when transplants are unchanged`() {
+        writePrebaked(donorsHash(listOf(contentHash(donor))))
+
+        val transformer = GraftTransformer()
+        transformer.registerPrebaked(classLoader())
+        transformer.transform("baked/FooTransplant", donor)
+
+        assertEquals(baked.toList(), transformer.transform("baked/Foo", recipient)?.toList())
+        assertEquals(1, transformer.stats.prebakedHits)
+    }
+
+    @Test
+    fun `changed transplants are grafted live`() {
+        writePrebaked(donorsHash(listOf(contentHash(donorBytes("baked/FooTransplant", "baked/Foo")))))
+
+        val transformer = GraftTransformer()
+        transformer.registerPrebaked(classLoader())
+        transformer.transform("baked/FooTransplant", donor)
+
+        val grafted = transformer.transform("baked/Foo", recipient)!!
+        assertTrue("java/io/Serializable" in classNode(grafted).interfaces)
+        assertEquals(0, transformer.stats.prebakedHits)
+        assertEquals(1, transformer.stats.prebakedMismatches)
+    }
+
+    @Test
+    fun `changed recipients are not served`() {
+        writePrebaked(donorsHash(listOf()))
+
+        val transformer = GraftTransformer()
+        transformer.registerPrebaked(classLoader())
+
+        assertNull(transformer.transform("baked/Foo", recipientBytes("baked/Foo", "java/lang/Runnable")))
+        assertEquals(1, transformer.stats.prebakedMismatches)
+    }
+
+    private fun writePrebaked(donorsHash: ByteArray) {
+        tmp.newFile("graftt.prebaked").outputStream().use { out ->
+            writePrebaked(listOf(PrebakedClass("baked/Foo", contentHash(recipient), donorsHash, baked)), out)
+        }
+    }
+
+    private fun classLoader() = URLClassLoader(arrayOf(tmp.root.toURI().toURL()), null)
+}
@@ -0,0 +1,132 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.Graft
+import net.onedaybeard.graftt.asm.type
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.Type
+import java.io.File
+import java.lang.instrument.Instrumentation
+import java.util.concurrent.TimeUnit
+import java.util.jar.Attributes
+import java.util.jar.JarOutputStream
+import java.util.jar.Manifest
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+/** upper bound of classes loaded by `premain`, JDK classes included */
+private const val PREMAIN_CLASS_BUDGET = 600
+
+class PremainFootprintTests {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    @Test
+    fun `premain and grafting load no kotlin-reflect`() {
+        val transplants = tmp.newFolder("transplants")
+        transplants.resolve("FooTransplant.class").writeBytes(fusingDonorBytes())
+        val recipient = tmp.newFile("Foo.class").apply { writeBytes(annotatedRecipientBytes()) }
+
+        val log = tmp.root.resolve("classes.log")
+        val process = ProcessBuilder(
+            File(System.getProperty("java.home"), "bin/java").path,
+            "-Xlog:class+load=info:file=${log.path}",
+            "-javaagent:${agentJar().path}=cp=${transplants.path}",
+            "-cp", tmp.root.path,
+            PremainFootprint::class.java.name,
+            recipient.path)
+            .redirectErrorStream(true)
+            .start()
+
+        val output = process.inputStream.bufferedReader().readText()
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS))
+        assertEquals(0, process.exitValue(), output)
+
+        val loaded = log.readLines()
+            .mapNotNull { line -> line.substringAfter("] ", "").substringBefore(" ").takeIf(String::isNotEmpty) }
+        val premain = loaded
+            .dropWhile { it != "net.onedaybeard.graftt.agent.GraftAgentKt" }
+            .takeWhile { it != PremainFootprint::class.java.name }
+
+        assertTrue(premain.isNotEmpty())
+        assertTrue(loaded.none { it.startsWith("kotlin.reflect.jvm.") || it.startsWith("kotlin.reflect.full.") })
+        assertTrue(premain.size < PREMAIN_CLASS_BUDGET, "${premain.size} classes loaded by premain")
+    }
+
+    /** agent jar referencing the test class path, as the shaded jar isn't built yet */
+    private fun agentJar(): File {
+        val classPath = System.getProperty("java.class.path")
+            .split(File.pathSeparator)
+            .joinToString(" ") { File(it).toURI().toString() }
+
+        val manifest = Manifest().apply {
+            mainAttributes[Attributes.Name.MANIFEST_VERSION] = "1.0"
+            mainAttributes[Attributes.Name("Premain-Class")] = PremainFootprintAgent::class.java.name
+            mainAttributes[Attributes.Name.CLASS_PATH] = classPath
+        }
+
+        return tmp.newFile("agent.jar").also { jar ->
+            JarOutputStream(jar.outputStream(), manifest).close()
+        }
+    }
+}
+
+/** installs the agent as `premain` does, holding on to the transformer for [PremainFootprint] */
+object PremainFootprintAgent {
+    lateinit var transformer: GraftTransformer
+
+    @JvmStatic
+    fun premain(agentArgs: String?, inst: Instrumentation) {
+        transformer = installAgent(agentArgs, inst)
+    }
+}
+
+/** grafts the recipient class file passed as argument; fails unless time spent in `premain` is recorded */
+object PremainFootprint {
+    @JvmStatic
+    fun main(args: Array<String>) {
+        val transformer = PremainFootprintAgent.transformer
+        checkNotNull(transformer.transform("Foo", File(args[0]).readBytes()))
+
+        val startupNanos = transformer.stats.startupNanos
+        check(startupNanos in 1 until TimeUnit.SECONDS.toNanos(30)) { "startupNanos: $startupNanos" }
+    }
+}
+
+/** `Foo` with a `@Deprecated void hello()`, as annotations of fused methods are copied */
+private fun annotatedRecipientBytes(): ByteArray = classfile("Foo") {
+    method("hello", "Ljava/lang/Deprecated;", visible = true)
+}
+
+/** `FooTransplant`, fusing `hello` */
+private fun fusingDonorBytes(): ByteArray = classfile("FooTransplant") {
+    visitAnnotation(type<Graft.Recipient>().descriptor, false).apply {
+        visit("value", Type.getObjectType("Foo"))
+        visitEnd()
+    }
+    method("hello", type<Graft.Fuse>().descriptor, visible = false)
+}
+
+private fun classfile(name: String, members: ClassWriter.() -> Unit): ByteArray {
+    val cw = ClassWriter(0)
+    cw.visit(V1_8, ACC_PUBLIC, name, null, "java/lang/Object", null)
+    cw.members()
+    cw.visitEnd()
+
+    return cw.toByteArray()
+}
+
+/** `public void name()`, annotated with [annotation] */
+private fun ClassWriter.method(name: String, annotation: String, visible: Boolean) {
+    visitMethod(ACC_PUBLIC, name, "()V", null, null).apply {
+        visitAnnotation(annotation, visible).visitEnd()
+        visitCode()
+        visitInsn(RETURN)
+        visitMaxs(0, 1)
+        visitEnd()
+    }
+}
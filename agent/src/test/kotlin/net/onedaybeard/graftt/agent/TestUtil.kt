@@ -0,0 +1,68 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.Graft
+import net.onedaybeard.graftt.asm.type
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.Type
+
+/** empty class, implementing [interfaces] */
+fun recipientBytes(name: String, vararg interfaces: String): ByteArray {
+    val cw = ClassWriter(0)
+    cw.visit(V1_8, ACC_PUBLIC, name, null, "java/lang/Object", interfaces)
+    cw.visitEnd()
+
+    return cw.toByteArray()
+}
+
+/** transplant for [recipient], retrofitting [interfaces] */
+fun donorBytes(name: String, recipient: String, vararg interfaces: String): ByteArray =
+    donorBytes(name, recipient, interfaces) {}
+
+/** transplant for [recipient] adding `int broken()`, which fails verification */
+fun brokenDonorBytes(name: String, recipient: String): ByteArray =
+    donorBytes(name, recipient, arrayOf()) {
+        visitMethod(ACC_PUBLIC, "broken", "()I", null, null).apply {
+            visitCode()
+            visitInsn(ICONST_1)
+            visitInsn(ARETURN)
+            visitMaxs(1, 1)
+            visitEnd()
+        }
+    }
+
+/** transplant for [recipient], restricted to [profiles] */
+fun profiledDonorBytes(name: String, recipient: String, vararg profiles: String): ByteArray =
+    donorBytes(name, recipient, arrayOf()) {
+        visitAnnotation(type<Graft.Profile>().descriptor, false).apply {
+            visitArray("value").apply {
+                profiles.forEach { visit(null, it) }
+                visitEnd()
+            }
+            visitEnd()
+        }
+    }
+
+private fun donorBytes(
+    name: String,
+    recipient: String,
+    interfaces: Array<out String>,
+    members: ClassWriter.() -> Unit
+): ByteArray {
+    val cw = ClassWriter(0)
+    cw.visit(V1_8, ACC_PUBLIC, name, null, "java/lang/Object", interfaces)
+    cw.visitAnnotation(type<Graft.Recipient>().descriptor, false).apply {
+        visit("value", Type.getObjectType(recipient))
+        visitEnd()
+    }
+    cw.members()
+    cw.visitEnd()
+
+    return cw.toByteArray()
+}
+
+fun donor(name: String, recipient: String, vararg interfaces: String): Donor =
+    Donor(donorBytes(name, recipient, *interfaces))
+
+fun GraftTransformer.transform(name: String, bytes: ByteArray): ByteArray? =
+    transform(null, name, null, null, bytes)
@@ -0,0 +1,124 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.asm.classNode
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import kotlin.test.assertEquals
+import kotlin.test.assertNotEquals
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class TransformCacheTests {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    @Test
+    fun `entries survive across cache instances`() {
+        val key = TransformCache(tmp.root).key(byteArrayOf(1), listOf(byteArrayOf(2)))
+        TransformCache(tmp.root)[key] = byteArrayOf(3, 4)
+
+        assertEquals(listOf<Byte>(3, 4), TransformCache(tmp.root)[key]?.toList())
+        assertNull(TransformCache(tmp.root)["missing"])
+    }
+
+    @Test
+    fun `keys depend on recipient and donors`() {
+        val cache = TransformCache(tmp.root)
+        val key = cache.key(byteArrayOf(1), listOf(byteArrayOf(2)))
+
+        assertEquals(key, cache.key(byteArrayOf(1), listOf(byteArrayOf(2))))
+        assertNotEquals(key, cache.key(byteArrayOf(1), listOf(byteArrayOf(3))))
+        assertNotEquals(key, cache.key(byteArrayOf(2), listOf(byteArrayOf(2))))
+    }
+
+    @Test
+    fun `keys depend on the recipients of referenced transplants`() {
+        val cache = TransformCache(tmp.root)
+        val registry = TransplantRegistry()
+        registry.register(donor("cache/FooTransplant", "cache/Foo", "cache/BarTransplant"), "cache/Foo")
+
+        fun key(): String {
+            val snapshot = registry.snapshot()
+            val donors = snapshot.transplants.getValue("cache/Foo")
+            return cache.key(byteArrayOf(1), donors.map(Donor::digest), snapshot.mappingOf(donors))
+        }
+
+        val unmapped = key()
+
+        registry.register(donor("cache/BarTransplant", "cache/Bar"), "cache/Bar")
+        val mapped = key()
+        assertNotEquals(unmapped, mapped)
+
+        // not referenced by FooTransplant
+        registry.register(donor("cache/BazTransplant", "cache/Baz"), "cache/Baz")
+        assertEquals(mapped, key())
+
+        registry.register(donor("cache/BarTransplant", "cache/Qux"), "cache/Qux")
+        assertNotEquals(mapped, key())
+    }
+
+    @Test
+    fun `cached classes are not served once referenced transplants are remapped`() {
+        val recipient = recipientBytes("cache/Foo")
+        fun graft(barRecipient: String): List<String> {
+            val transformer = GraftTransformer(TransformCache(tmp.root))
+            transformer.transform("cache/BarTransplant", donorBytes("cache/BarTransplant", barRecipient))
+            transformer.transform("cache/FooTransplant", donorBytes("cache/FooTransplant", "cache/Foo", "cache/BarTransplant"))
+
+            return classNode(transformer.transform("cache/Foo", recipient)!!).interfaces
+        }
+
+        assertEquals(listOf("cache/Bar"), graft("cache/Bar"))
+        assertEquals(listOf("cache/Qux"), graft("cache/Qux"))
+    }
+
+    @Test
+    fun `unversioned builds are keyed on their code`() {
+        val classes = tmp.newFolder("classes")
+        classes.resolve("Foo.class").writeBytes(byteArrayOf(1))
+        val digest = codeDigest(listOf(classes))
+
+        assertEquals(digest, codeDigest(listOf(classes)))
+        classes.resolve("Foo.class").writeBytes(byteArrayOf(2))
+        assertNotEquals(digest, codeDigest(listOf(classes)))
+
+        // tests run from class directories
+        assertTrue(graftVersion.startsWith("dev-"))
+    }
+
+    @Test
+    fun `least recently used entries are evicted`() {
+        val cache = TransformCache(tmp.root, maxBytes = 4096)
+        (0 until 16).forEach { i ->
+            cache["entry$i"] = ByteArray(512)
+            tmp.root.resolve("entry$i.class").setLastModified(i * 1000L)
+        }
+
+        val remaining = tmp.root.list()!!.filter { it.endsWith(".class") }
+        assertTrue(remaining.size * 512 <= 4096)
+        assertTrue("entry15.class" in remaining)
+        assertTrue("entry0.class" !in remaining)
+    }
+
+    @Test
+    fun `cache hits are served without transplanting`() {
+        val cache = TransformCache(tmp.root)
+        val transformer = GraftTransformer(cache)
+
+        val donor = donorBytes("cache/FooTransplant", "cache/Foo", "java/io/Serializable")
+        val recipient = recipientBytes("cache/Foo")
+
+        transformer.transform("cache/FooTransplant", donor)
+        val grafted = transformer.transform("cache/Foo", recipient)!!
+        assertTrue("java/io/Serializable" in classNode(grafted).interfaces)
+
+        // tampering with the entry proves it is returned verbatim
+        val donors = transformer.transplants.getValue("cache/Foo")
+        val key = cache.key(recipient, donors.map(Donor::digest), transformer.mapping)
+        cache[key] = byteArrayOf(0xc, 0xa, 0xf, 0xe)
+
+        assertEquals(listOf<Byte>(0xc, 0xa, 0xf, 0xe), transformer.transform("cache/Foo", recipient)?.toList())
+    }
+}
@@ -0,0 +1,82 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.IndexEntry
+import net.onedaybeard.graftt.contentHash
+import net.onedaybeard.graftt.readIndex
+import net.onedaybeard.graftt.writeIndex
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.net.URLClassLoader
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class TransformScopeTests {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    @Test
+    fun `longest matching package prefix wins`() {
+        val filter = PackageFilter(
+            includes = listOf("com.foo", "org/bar/"),
+            excludes = listOf("com.foo.internal"))
+
+        assertTrue("com/foo/Foo" in filter)
+        assertTrue("com/foo/api/Foo" in filter)
+        assertTrue("org/bar/Bar" in filter)
+        assertFalse("com/foo/internal/Foo" in filter)
+        assertFalse("com/foobar/Foo" in filter)
+        assertFalse("java/lang/String" in filter)
+    }
+
+    @Test
+    fun `all packages accepted without includes`() {
+        val filter = PackageFilter(excludes = listOf("java", "sun"))
+
+        assertTrue("com/foo/Foo" in filter)
+        assertTrue("javax/Foo" in filter)
+        assertFalse("java/lang/String" in filter)
+        assertFalse("sun/misc/Unsafe" in filter)
+    }
+
+    @Test
+    fun `classes of excluded packages and loaders are rejected`() {
+        val scope = TransformScope(
+            packages = PackageFilter(excludes = listOf("scope.excluded")),
+            excludedLoaders = listOf("bootstrap", URLClassLoader::class.java.name))
+
+        assertTrue(scope.accepts(javaClass.classLoader, "scope/Foo"))
+        assertFalse(scope.accepts(javaClass.classLoader, "scope/excluded/Foo"))
+        assertFalse(scope.accepts(null, "scope/Foo"))
+        assertFalse(scope.accepts(URLClassLoader(arrayOf()), "scope/Foo"))
+    }
+
+    @Test
+    fun `only transplants of active profiles are registered`() {
+        val transformer = GraftTransformer(scope = TransformScope(profiles = setOf("prod")))
+        transformer.transform("scope/ProdTransplant", profiledDonorBytes("scope/ProdTransplant", "scope/Prod", "prod"))
+        transformer.transform("scope/DevTransplant", profiledDonorBytes("scope/DevTransplant", "scope/Dev", "dev"))
+        transformer.transform("scope/AnyTransplant", donorBytes("scope/AnyTransplant", "scope/Any"))
+
+        assertEquals(setOf("scope/Prod", "scope/Any"), transformer.transplants.keys)
+        assertNull(transformer.transform("scope/Dev", recipientBytes("scope/Dev")))
+    }
+
+    @Test
+    fun `transplants of inactive profiles in index are never read`() {
+        val donor = profiledDonorBytes("scope/FooTransplant", "scope/Foo", "dev")
+        val entry = IndexEntry("scope/FooTransplant", "scope/Foo", contentHash(donor), profiles = listOf("dev"))
+
+        // no class file for the transplant; reading it would throw
+        tmp.newFile("graftt.index").outputStream().use { out -> writeIndex(listOf(entry), out) }
+
+        val transformer = GraftTransformer(scope = TransformScope(profiles = setOf("prod")))
+        transformer.registerTransplantIndices(URLClassLoader(arrayOf(tmp.root.toURI().toURL()), null))
+
+        assertEquals(mapOf(), transformer.mapping)
+        assertEquals(listOf("dev"), readIndex(tmp.root.resolve("graftt.index").readBytes()).single().profiles)
+    }
+}
@@ -0,0 +1,56 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.IndexEntry
+import net.onedaybeard.graftt.contentHash
+import net.onedaybeard.graftt.writeIndex
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.net.URLClassLoader
+import kotlin.test.assertEquals
+
+class TransplantIndexTests {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    @Test
+    fun `register transplants from binary index with embedded class files`() {
+        val donor = donorBytes("idx/FooTransplant", "idx/Foo")
+        tmp.newFile("graftt.index").outputStream().use { out ->
+            writeIndex(listOf(IndexEntry("idx/FooTransplant", "idx/Foo", contentHash(donor), donor)), out)
+        }
+
+        val transformer = GraftTransformer()
+        transformer.registerTransplantIndices(classLoader())
+
+        assertEquals(mapOf("idx/FooTransplant" to "idx/Foo"), transformer.mapping)
+    }
+
+    @Test
+    fun `register transplants from binary index referencing class files`() {
+        val donor = donorBytes("idx/FooTransplant", "idx/Foo")
+        tmp.newFolder("idx").resolve("FooTransplant.class").writeBytes(donor)
+        tmp.newFile("graftt.index").outputStream().use { out ->
+            writeIndex(listOf(IndexEntry("idx/FooTransplant", "idx/Foo", contentHash(donor))), out)
+        }
+
+        val transformer = GraftTransformer()
+        transformer.registerTransplantIndices(classLoader())
+
+        assertEquals(mapOf("idx/FooTransplant" to "idx/Foo"), transformer.mapping)
+    }
+
+    @Test
+    fun `register transplants from text index`() {
+        tmp.newFolder("idx").resolve("FooTransplant.class").writeBytes(donorBytes("idx/FooTransplant", "idx/Foo"))
+        tmp.newFile("graftt.index").writeText("# transplants\nidx.FooTransplant\n")
+
+        val transformer = GraftTransformer()
+        transformer.registerTransplantIndices(classLoader())
+
+        assertEquals(mapOf("idx/FooTransplant" to "idx/Foo"), transformer.mapping)
+    }
+
+    private fun classLoader() = URLClassLoader(arrayOf(tmp.root.toURI().toURL()), null)
+}
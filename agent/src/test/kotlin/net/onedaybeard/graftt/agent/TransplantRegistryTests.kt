@@ -0,0 +1,117 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.asm.classNode
+import org.junit.Test
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class TransplantRegistryTests {
+
+    @Test
+    fun `snapshots are not affected by later registrations`() {
+        val registry = TransplantRegistry()
+        registry.register(donor("a/ATransplant", "a/A"), "a/A")
+
+        val snapshot = registry.snapshot()
+        registry.register(donor("b/BTransplant", "b/B"), "b/B")
+
+        assertEquals(setOf("a/A"), snapshot.transplants.keys)
+        assertEquals("a/A", snapshot.remapper.map("a/ATransplant"))
+        assertEquals("b/B", registry.snapshot().remapper.map("b/BTransplant"))
+    }
+
+    @Test
+    fun `retargeted donors are moved to their new recipient`() {
+        val registry = TransplantRegistry()
+        registry.register(donor("retarget/ATransplant", "retarget/A"), "retarget/A")
+        registry.register(donor("retarget/BTransplant", "retarget/B"), "retarget/B")
+        registry.register(donor("retarget/ATransplant", "retarget/B"), "retarget/B")
+
+        val snapshot = registry.snapshot()
+        assertEquals(setOf("retarget/B"), snapshot.transplants.keys)
+        assertEquals(
+            listOf("retarget/ATransplant", "retarget/BTransplant"),
+            snapshot.transplants.getValue("retarget/B").map(Donor::name))
+        assertEquals("retarget/B", snapshot.mapping["retarget/ATransplant"])
+        assertTrue("retarget/A" !in registry)
+    }
+
+    @Test
+    fun `multiple transplants for the same recipient are applied together`() {
+        val transformer = GraftTransformer()
+        transformer.transform("multi/BTransplant", donorBytes("multi/BTransplant", "multi/Foo", "java/lang/Runnable"))
+        transformer.transform("multi/ATransplant", donorBytes("multi/ATransplant", "multi/Foo", "java/io/Serializable"))
+        transformer.transform("multi/ATransplant", donorBytes("multi/ATransplant", "multi/Foo", "java/io/Serializable"))
+
+        val donors = transformer.transplants.getValue("multi/Foo").map(Donor::name)
+        assertEquals(listOf("multi/ATransplant", "multi/BTransplant"), donors)
+
+        val grafted = classNode(transformer.transform("multi/Foo", recipientBytes("multi/Foo"))!!)
+        assertEquals(listOf("java/io/Serializable", "java/lang/Runnable"), grafted.interfaces)
+    }
+
+    @Test
+    fun `donors are parsed on first use and released once grafted`() {
+        val donorBytes = donorBytes("lazy/FooTransplant", "lazy/Foo", "java/io/Serializable")
+
+        val transformer = GraftTransformer()
+        transformer.transform("lazy/FooTransplant", donorBytes)
+        assertEquals(DonorMemory(1, 0, donorBytes.size.toLong()), transformer.registry.memory())
+
+        val grafted = transformer.transform("lazy/Foo", recipientBytes("lazy/Foo"))!!
+        assertEquals(0, transformer.stats.donorsParsed)
+
+        // parsed again for the next class loader
+        assertEquals(grafted.toList(), transformer.transform("lazy/Foo", recipientBytes("lazy/Foo"))!!.toList())
+    }
+
+    @Test
+    fun `parsed donors are retained for retransformation`() {
+        val transformer = GraftTransformer(retainParsedDonors = true)
+        transformer.transform("retained/FooTransplant", donorBytes("retained/FooTransplant", "retained/Foo"))
+        transformer.transform("retained/Foo", recipientBytes("retained/Foo"))
+
+        assertEquals(1, transformer.stats.donors)
+        assertEquals(1, transformer.stats.donorsParsed)
+    }
+
+    @Test
+    fun `no lost registrations when loading classes on many threads`() {
+        val threads = 16
+        val perThread = 200
+
+        val transformer = GraftTransformer()
+        val pool = Executors.newFixedThreadPool(threads)
+        val start = CountDownLatch(1)
+
+        // each thread loads its own transplants and recipients, interleaved
+        // with unrelated classes hitting the lookup path concurrently
+        val tasks = (0 until threads).map { t ->
+            Callable {
+                start.await()
+                (0 until perThread).map { i ->
+                    val id = "${t}_$i"
+                    assertNull(transformer.transform("stress/Unrelated$id", recipientBytes("stress/Unrelated$id")))
+                    transformer.transform("stress/Donor$id", donorBytes("stress/Donor$id", "stress/Recipient$id", "java/io/Serializable"))
+                    transformer.transform("stress/Recipient$id", recipientBytes("stress/Recipient$id"))
+                }
+            }
+        }
+
+        val futures = tasks.map(pool::submit)
+        start.countDown()
+        val grafted = futures.flatMap { it.get() }
+
+        pool.shutdown()
+        pool.awaitTermination(10, TimeUnit.SECONDS)
+
+        assertEquals(threads * perThread, transformer.transplants.size)
+        assertEquals(threads * perThread, transformer.mapping.size)
+        assertTrue(grafted.all { bytes -> "java/io/Serializable" in classNode(bytes!!).interfaces })
+    }
+}
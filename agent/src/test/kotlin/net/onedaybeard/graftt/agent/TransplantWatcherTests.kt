@@ -0,0 +1,70 @@
+package net.onedaybeard.graftt.agent
+
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.asm.internalName
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertTrue
+
+class TransplantWatcherTests {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    /** stands in for a loaded recipient */
+    class Recipient
+
+    private val recipient = Recipient::class.internalName
+
+    @Test
+    fun `changed transplants are re-registered and their recipients retransformed`() {
+        val dir = tmp.newFolder("watch")
+        val donor = dir.resolve("watch/FooTransplant.class")
+        donor.parentFile.mkdirs()
+        donor.writeBytes(donorBytes("watch/FooTransplant", recipient, "java/io/Serializable"))
+
+        val transformer = GraftTransformer().apply { register(dir) }
+        val retransformed = LinkedBlockingQueue<List<Class<*>>>()
+
+        TransplantWatcher(transformer, listOf(dir),
+            loadedClasses = { listOf(String::class.java, Recipient::class.java) },
+            retransform = { classes -> retransformed += classes.toList() }
+        ).start().use {
+            donor.writeBytes(donorBytes("watch/FooTransplant", recipient, "java/lang/Runnable"))
+
+            val batch = retransformed.poll(10, TimeUnit.SECONDS)
+            assertNotNull(batch, "no retransformation within 10 seconds")
+            assertEquals(listOf<Class<*>>(Recipient::class.java), batch)
+        }
+
+        val grafted = transformer.transform(recipient, recipientBytes(recipient))!!
+        assertTrue("java/lang/Runnable" in classNode(grafted).interfaces)
+    }
+
+    @Test
+    fun `unchanged transplants are not retransformed`() {
+        val dir = tmp.newFolder("unchanged")
+        val donor = dir.resolve("FooTransplant.class")
+        donor.writeBytes(donorBytes("FooTransplant", recipient))
+
+        val transformer = GraftTransformer().apply { register(dir) }
+        val retransformed = mutableListOf<Class<*>>()
+
+        val watcher = TransplantWatcher(transformer, listOf(dir),
+            loadedClasses = { listOf(Recipient::class.java) },
+            retransform = { classes -> retransformed += classes })
+
+        watcher.use {
+            assertEquals(setOf(), it.reload(listOf(donor)))
+            donor.writeBytes(donorBytes("FooTransplant", recipient, "java/io/Serializable"))
+            assertEquals(setOf(recipient), it.reload(listOf(donor)))
+        }
+
+        assertEquals(listOf<Class<*>>(Recipient::class.java), retransformed)
+    }
+}
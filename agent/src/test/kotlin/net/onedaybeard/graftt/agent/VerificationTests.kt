@@ -0,0 +1,93 @@
+package net.onedaybeard.graftt.agent
+
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+class VerificationTests {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    @Test
+    fun `classes failing verification are not transplanted`() {
+        val transformer = GraftTransformer(verify = VerifyMode.MODIFIED_METHODS_ONLY)
+        transformer.transform("verify/FooTransplant", brokenDonorBytes("verify/FooTransplant", "verify/Foo"))
+
+        assertNull(transformer.transform("verify/Foo", recipientBytes("verify/Foo")))
+        assertEquals(1, transformer.stats.transplantFailures)
+        assertEquals(1, transformer.stats.verificationFailures)
+    }
+
+    @Test
+    fun `classes are fully verified by default`() {
+        val transformer = GraftTransformer()
+        transformer.transform("full/FooTransplant", brokenDonorBytes("full/FooTransplant", "full/Foo"))
+
+        assertEquals(VerifyMode.FULL, transformer.verify)
+        assertNull(transformer.transform("full/Foo", recipientBytes("full/Foo")))
+        assertEquals(1, transformer.stats.verificationFailures)
+    }
+
+    @Test
+    fun `async verification reports failures after returning the class`() {
+        val transformer = GraftTransformer(verify = VerifyMode.ASYNC)
+        transformer.transform("async/FooTransplant", brokenDonorBytes("async/FooTransplant", "async/Foo"))
+
+        assertNotNull(transformer.transform("async/Foo", recipientBytes("async/Foo")))
+        transformer.verifier!!.await()
+
+        assertEquals(0, transformer.stats.transplantFailures)
+        assertEquals(1, transformer.stats.verificationFailures)
+        assertEquals(1, transformer.stats.phaseCount["verify"])
+    }
+
+    @Test
+    fun `classes failing async verification are not cached`() {
+        val cache = TransformCache(tmp.root)
+        fun run(): GraftTransformer = GraftTransformer(cache, verify = VerifyMode.ASYNC).apply {
+            transform("async/FooTransplant", brokenDonorBytes("async/FooTransplant", "async/Foo"))
+            assertNotNull(transform("async/Foo", recipientBytes("async/Foo")))
+            verifier!!.await()
+        }
+
+        run()
+        val next = run()
+        assertEquals(0, next.stats.cacheHits)
+        assertEquals(1, next.stats.verificationFailures)
+    }
+
+    @Test
+    fun `classes passing async verification are cached`() {
+        val cache = TransformCache(tmp.root)
+        fun run(): GraftTransformer = GraftTransformer(cache, verify = VerifyMode.ASYNC).apply {
+            transform("async/FooTransplant", donorBytes("async/FooTransplant", "async/Foo", "java/io/Serializable"))
+            assertNotNull(transform("async/Foo", recipientBytes("async/Foo")))
+            verifier!!.await()
+        }
+
+        run()
+        assertEquals(1, run().stats.cacheHits)
+    }
+
+    @Test
+    fun `no verification when off`() {
+        val transformer = GraftTransformer(verify = VerifyMode.OFF)
+        transformer.transform("off/FooTransplant", brokenDonorBytes("off/FooTransplant", "off/Foo"))
+
+        assertNotNull(transformer.transform("off/Foo", recipientBytes("off/Foo")))
+        assertNull(transformer.verifier)
+        assertEquals(0, transformer.stats.phaseCount["verify"])
+    }
+
+    @Test
+    fun `parse verify argument`() {
+        assertEquals(VerifyMode.ASYNC, VerifyMode.parse("async"))
+        assertEquals(VerifyMode.MODIFIED_METHODS_ONLY, VerifyMode.parse("modified-methods-only"))
+        assertFailsWith<IllegalArgumentException> { VerifyMode.parse("sometimes") }
+    }
+}
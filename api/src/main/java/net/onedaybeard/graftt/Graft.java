@@ -19,6 +19,17 @@ public final class Graft {
     @Target(TYPE)
     public @interface Recipient { Class<?> value(); }
 
+    /**
+     * Restricts the transplant to the named profiles. The agent only
+     * applies the transplant when one of its profiles is active, e.g.
+     * {@code profile=prod}. Transplants without this annotation are
+     * always applied.
+     */
+    @Documented
+    @Retention(CLASS)
+    @Target(TYPE)
+    public @interface Profile { String[] value(); }
+
     /**
      * Mock to keep the compiler happy when you need to reference
      * fields or methods in the target class. Mocked references point
@@ -37,7 +48,39 @@ public final class Graft {
     @Documented
     @Retention(CLASS)
     @Target({METHOD, FIELD})
-    public @interface Fuse {}
+    public @interface Fuse {
+
+        /**
+         * Splices the body of the original method into the fused method,
+         * in place of the call to it. No {@code $original} method is left
+         * in the recipient, saving a call frame and keeping hot methods
+         * within the JIT's inlining budget.
+         * <p/>
+         * Only applies to methods invoking the original once, on
+         * {@code this} or statically, with nothing but the arguments on
+         * the operand stack. Otherwise, the original is invoked as usual.
+         *
+         * @return true to inline the original method
+         */
+        boolean inline() default false;
+    }
+
+    /**
+     * Moves cold paths of the transplanted method into private static
+     * synthetic methods of the recipient, keeping the hot path small
+     * enough for the JIT to inline. Cold paths are straight-line blocks:
+     * <ul>
+     *     <li>catch blocks</li>
+     *     <li>blocks ending in {@code throw}</li>
+     *     <li>blocks guarded by a boolean field, e.g. {@code if (trace)}</li>
+     * </ul>
+     * Blocks assigning local variables read after the block remain
+     * in place.
+     */
+    @Documented
+    @Retention(CLASS)
+    @Target(METHOD)
+    public @interface Outline {}
 
     /**
      * Specifies how to deal with annotations on recipient class. This
@@ -0,0 +1,50 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.CoreKt;
+import net.onedaybeard.graftt.agent.Donor;
+import net.onedaybeard.graftt.agent.GraftTransformer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.onedaybeard.graftt.benchmarks.Recipients.RECIPIENT;
+
+/**
+ * {@link GraftTransformer#transform} as invoked by the JVM for each loaded
+ * class: grafting a registered recipient, and rejecting a class which is
+ * neither a recipient nor a transplant. The latter is the cost paid by
+ * every other class loaded with the agent attached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentTransformBenchmark {
+
+    @Param({"10", "500", "2000"})
+    public int methods;
+
+    private GraftTransformer transformer;
+    private byte[] recipient;
+
+    @Setup
+    public void setup() {
+        transformer = new GraftTransformer();
+        byte[] transplant = Recipients.transplant();
+        transformer.register(new Donor(transplant, CoreKt.contentHash(transplant)), RECIPIENT);
+        recipient = Recipients.recipient(methods);
+    }
+
+    @Benchmark
+    public byte[] recipient() {
+        return transformer.transform(null, RECIPIENT, null, null, recipient);
+    }
+
+    /** same class file, loaded under a name without transplants */
+    @Benchmark
+    public byte[] nonRecipient() {
+        return transformer.transform(null, "bench/Unrelated", null, null, recipient);
+    }
+}
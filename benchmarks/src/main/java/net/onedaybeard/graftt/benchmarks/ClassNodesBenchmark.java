@@ -0,0 +1,80 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.CoreKt;
+import org.objectweb.asm.tree.ClassNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Reading all classes of a class directory and of a jar holding the same
+ * classes, each declaring 20 methods. The OS file cache is warm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassNodesBenchmark {
+
+    @Param({"100", "1000"})
+    public int classes;
+
+    private File root;
+    private File directory;
+    private File jar;
+
+    @Setup
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("graftt-bench").toFile();
+        directory = new File(root, "classes");
+        jar = new File(root, "classes.jar");
+
+        byte[] classfile = Recipients.recipient(20);
+        try (OutputStream out = Files.newOutputStream(jar.toPath());
+             JarOutputStream jos = new JarOutputStream(out)) {
+
+            for (int i = 0; i < classes; i++) {
+                String path = "bench/p" + (i / 100) + "/C" + i + ".class";
+
+                File file = new File(directory, path);
+                file.getParentFile().mkdirs();
+                Files.write(file.toPath(), classfile);
+
+                jos.putNextEntry(new ZipEntry(path));
+                jos.write(classfile);
+                jos.closeEntry();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root.toPath())) {
+            files.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public List<ClassNode> directory() {
+        return CoreKt.classNodes(directory);
+    }
+
+    @Benchmark
+    public List<ClassNode> jar() {
+        return CoreKt.classNodes(jar);
+    }
+}
@@ -0,0 +1,120 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Synthetic classpath of {@code classes} recipients, written as a class
+ * directory or a jar. Classes are spread over packages of 500 classes:
+ * {@code corpus/p0/C0}, {@code corpus/p0/C1}, ... The first
+ * {@code transplants} recipients each have a transplant, named as the
+ * recipient with a {@code Transplant} suffix.
+ * <p>
+ * Part of the main source set, as benchmarks generate their corpus when
+ * running from {@code benchmarks.jar}.
+ */
+public final class Corpus {
+    public final int classes;
+    public final int methods;
+    public final int transplants;
+    public final int annotations;
+
+    /**
+     * @param classes recipients, excluding transplants
+     * @param methods per recipient
+     * @param transplants number of recipients with a transplant
+     * @param annotations per method
+     */
+    public Corpus(int classes, int methods, int transplants, int annotations) {
+        if (transplants > classes)
+            throw new IllegalArgumentException("more transplants than classes: " + transplants);
+
+        this.classes = classes;
+        this.methods = methods;
+        this.transplants = transplants;
+        this.annotations = annotations;
+    }
+
+    public static String recipient(int index) {
+        return "corpus/p" + (index / 500) + "/C" + index;
+    }
+
+    public static String transplant(int index) {
+        return recipient(index) + "Transplant";
+    }
+
+    /** writes all class files below {@code root} */
+    public void writeDirectory(File root) throws IOException {
+        write((name, classfile) -> {
+            Path path = root.toPath().resolve(name + ".class");
+            Files.createDirectories(path.getParent());
+            Files.write(path, classfile);
+        });
+    }
+
+    public void writeJar(File jar) throws IOException {
+        try (OutputStream out = Files.newOutputStream(jar.toPath());
+             JarOutputStream jos = new JarOutputStream(out)) {
+
+            write((name, classfile) -> {
+                jos.putNextEntry(new ZipEntry(name + ".class"));
+                jos.write(classfile);
+                jos.closeEntry();
+            });
+        }
+    }
+
+    /** recipients in order, each followed by its transplant, if any */
+    public void write(ClassfileConsumer out) throws IOException {
+        for (int i = 0; i < classes; i++) {
+            out.accept(recipient(i), Recipients.recipient(recipient(i), methods, 0, annotations));
+            if (i < transplants)
+                out.accept(transplant(i), Recipients.transplant(transplant(i), recipient(i)));
+        }
+    }
+
+    /** deletes {@code root} and everything below it */
+    public static void delete(File root) throws IOException {
+        if (!root.exists())
+            return;
+
+        try (Stream<Path> files = Files.walk(root.toPath())) {
+            files.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    /** copies the directory at {@code from} to {@code to} */
+    public static void copy(File from, File to) throws IOException {
+        Path source = from.toPath();
+        Path target = to.toPath();
+        try (Stream<Path> files = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Path copy = target.resolve(source.relativize(path));
+                if (Files.isDirectory(path))
+                    Files.createDirectories(copy);
+                else
+                    Files.copy(path, copy);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Corpus(classes=" + classes + ", methods=" + methods
+            + ", transplants=" + transplants + ", annotations=" + annotations + ")";
+    }
+
+    @FunctionalInterface
+    public interface ClassfileConsumer {
+        void accept(String name, byte[] classfile) throws IOException;
+    }
+}
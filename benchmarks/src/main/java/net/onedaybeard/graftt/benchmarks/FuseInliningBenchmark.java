@@ -0,0 +1,49 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import static net.onedaybeard.graftt.benchmarks.FusedChecksum.*;
+
+/**
+ * Cost per call of a fused method invoking {@code applyAsInt$original},
+ * versus the same transplant with the original inlined.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FuseInliningBenchmark {
+
+    private IntUnaryOperator original;
+    private IntUnaryOperator fused;
+    private IntUnaryOperator inlined;
+
+    private int value;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        original = new Checksum();
+        fused = (IntUnaryOperator) Grafted.instance(Checksum.class, ChecksumTransplant.class);
+        inlined = (IntUnaryOperator) Grafted.instance(Checksum.class, InlinedChecksumTransplant.class);
+    }
+
+    @Benchmark
+    public int original() {
+        return original.applyAsInt(value++);
+    }
+
+    @Benchmark
+    public int fused() {
+        return fused.applyAsInt(value++);
+    }
+
+    @Benchmark
+    public int inlined() {
+        return inlined.applyAsInt(value++);
+    }
+}
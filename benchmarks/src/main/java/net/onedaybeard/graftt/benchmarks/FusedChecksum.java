@@ -0,0 +1,38 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.Graft;
+
+import java.util.function.IntUnaryOperator;
+
+/** recipient and transplants of {@link FuseInliningBenchmark} */
+public interface FusedChecksum {
+
+    class Checksum implements IntUnaryOperator {
+        @Override
+        public int applyAsInt(int value) {
+            int h = value * 0x9e3779b9;
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            return h;
+        }
+    }
+
+    @Graft.Recipient(Checksum.class)
+    class ChecksumTransplant {
+        @Graft.Fuse
+        public int applyAsInt(int value) {
+            int h = applyAsInt(value);
+            return h ^ (h >>> 16);
+        }
+    }
+
+    @Graft.Recipient(Checksum.class)
+    class InlinedChecksumTransplant {
+        @Graft.Fuse(inline = true)
+        public int applyAsInt(int value) {
+            int h = applyAsInt(value);
+            return h ^ (h >>> 16);
+        }
+    }
+}
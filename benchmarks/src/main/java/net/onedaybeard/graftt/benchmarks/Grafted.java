@@ -0,0 +1,40 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.asm.AsmKtKt;
+import net.onedaybeard.graftt.asm.ClassNodeExtKt;
+import net.onedaybeard.graftt.graft.OperationsKt;
+import net.onedaybeard.graftt.graft.PhaseListener;
+import net.onedaybeard.graftt.graft.Verification;
+import org.objectweb.asm.commons.SimpleRemapper;
+import org.objectweb.asm.tree.ClassNode;
+
+import static com.github.michaelbull.result.UnwrapKt.unwrap;
+import static java.util.Collections.singletonList;
+
+/** Recipients grafted by core, each loaded by a class loader of its own */
+public final class Grafted {
+    private Grafted() {}
+
+    /** new instance of {@code recipient} grafted with {@code transplant} */
+    public static Object instance(Class<?> recipient, Class<?> transplant) throws ReflectiveOperationException {
+        ClassNode donor = AsmKtKt.classNode(transplant);
+        ClassNode cn = AsmKtKt.classNode(recipient);
+
+        ClassNode grafted = unwrap(OperationsKt.transplant(singletonList(donor), cn,
+            new SimpleRemapper(donor.name, cn.name), PhaseListener.Companion.getNONE(), Verification.FULL));
+
+        byte[] bytes = ClassNodeExtKt.toBytes(grafted);
+        Class<?> type = new GraftedClassLoader().define(recipient.getName(), bytes);
+        return type.getConstructor().newInstance();
+    }
+
+    private static class GraftedClassLoader extends ClassLoader {
+        GraftedClassLoader() {
+            super(Grafted.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.Graft;
+
+import java.util.function.IntUnaryOperator;
+
+/** recipient and transplants of {@link RuntimeOverheadBenchmark} */
+public interface GraftedLookup {
+
+    /** implemented by {@link SizedTransplant} */
+    interface Sized {
+        int size();
+    }
+
+    class Lookup implements IntUnaryOperator {
+        public final int[] values = new int[1024];
+
+        public Lookup() {
+            for (int i = 0; i < values.length; i++)
+                values[i] = i * 31;
+        }
+
+        @Override
+        public int applyAsInt(int index) {
+            return values[index & 1023];
+        }
+    }
+
+    /** as if {@link Sized} was implemented by hand */
+    class SizedLookup extends Lookup implements Sized {
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    /** calls the original and nothing else */
+    @Graft.Recipient(Lookup.class)
+    class PassthroughTransplant {
+        @Graft.Fuse
+        public int applyAsInt(int index) {
+            return applyAsInt(index);
+        }
+    }
+
+    /** counts calls and negative results in added fields */
+    @Graft.Recipient(Lookup.class)
+    class CountingTransplant {
+        public int calls;
+        public int negatives;
+
+        @Graft.Fuse
+        public int applyAsInt(int index) {
+            calls++;
+            int value = applyAsInt(index);
+            if (value < 0)
+                negatives++;
+
+            return value;
+        }
+    }
+
+    @Graft.Recipient(Lookup.class)
+    class SizedTransplant implements Sized {
+        @Graft.Mock
+        public int[] values;
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.asm.AsmKtKt;
+import net.onedaybeard.graftt.graft.OperationsKt;
+import net.onedaybeard.graftt.graft.PhaseListener;
+import net.onedaybeard.graftt.graft.Verification;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+import org.objectweb.asm.tree.ClassNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.michaelbull.result.UnwrapKt.unwrap;
+import static java.util.Collections.singletonList;
+import static net.onedaybeard.graftt.benchmarks.Recipients.RECIPIENT;
+import static net.onedaybeard.graftt.benchmarks.Recipients.TRANSPLANT;
+
+/**
+ * Surgery on recipients with as many fields as methods, fusing every
+ * tenth member. Verification is off; time is dominated by looking up
+ * recipient members matching the transplanted ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemberLookupBenchmark {
+
+    /** total of fields and methods */
+    @Param({"1000", "10000"})
+    public int members;
+
+    private byte[] recipientBytes;
+    private List<ClassNode> donors;
+    private Remapper remapper;
+
+    private ClassNode recipient;
+
+    @Setup
+    public void setup() {
+        recipientBytes = Recipients.recipient(members / 2, members / 2);
+        donors = singletonList(AsmKtKt.classNode(Recipients.fusingTransplant(members / 2, members / 2, 10)));
+        remapper = new SimpleRemapper(TRANSPLANT, RECIPIENT);
+    }
+
+    /** surgery mutates the recipient */
+    @Setup(Level.Invocation)
+    public void parseRecipient() {
+        recipient = new ClassNode();
+        new ClassReader(recipientBytes).accept(recipient, ClassReader.SKIP_CODE);
+    }
+
+    @Benchmark
+    public ClassNode fuse() {
+        return unwrap(OperationsKt.transplant(donors, recipient, remapper, PhaseListener.Companion.getNONE(), Verification.OFF));
+    }
+}
@@ -0,0 +1,56 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.GenerateIndexMojo;
+import net.onedaybeard.graftt.TransplanterMojo;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+
+import java.io.File;
+import java.lang.reflect.Field;
+
+/**
+ * Mojos configured as by maven, for a project without dependencies
+ * compiling to {@code classDir}. Only warnings and errors are logged.
+ */
+public final class Mojos {
+    private Mojos() {}
+
+    public static GenerateIndexMojo generateIndex(File classDir) throws ReflectiveOperationException {
+        GenerateIndexMojo mojo = quiet(new GenerateIndexMojo());
+        set(mojo, "classDir", classDir);
+        return mojo;
+    }
+
+    public static TransplanterMojo transplant(File classDir) throws ReflectiveOperationException {
+        Plugin plugin = new Plugin();
+        plugin.setArtifactId("graftt-maven-plugin");
+
+        Model model = new Model();
+        model.setBuild(new Build());
+        model.getBuild().addPlugin(plugin);
+
+        TransplanterMojo mojo = quiet(new TransplanterMojo());
+        set(mojo, "project", new MavenProject(model));
+        set(mojo, "classDir", classDir);
+        set(mojo, "enable", true);
+        return mojo;
+    }
+
+    private static <T extends AbstractMojo> T quiet(T mojo) {
+        mojo.setLog(new DefaultLog(new ConsoleLogger(Logger.LEVEL_WARN, "graftt")));
+        return mojo;
+    }
+
+    /** as injected by maven from {@code @Parameter} */
+    private static void set(Object mojo, String name, Object value) throws ReflectiveOperationException {
+        Field field = mojo.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+}
@@ -0,0 +1,54 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Peak heap usage per iteration, summed over all heap memory pools:
+ * {@code -prof net.onedaybeard.graftt.benchmarks.PeakHeapProfiler}.
+ * A full GC precedes each iteration, but garbage is counted until
+ * collected; the peak is an upper bound of the live set.
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+    private final List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .collect(toList());
+
+    @Override
+    public String getDescription() {
+        return "peak heap usage";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        System.gc();
+        pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+        BenchmarkParams benchmarkParams,
+        IterationParams iterationParams,
+        IterationResult result
+    ) {
+        long peak = pools.stream()
+            .mapToLong(pool -> pool.getPeakUsage().getUsed())
+            .sum();
+
+        return singletonList(new ScalarResult("·peak.heap", peak / (1024.0 * 1024.0), "MB", AggregationPolicy.MAX));
+    }
+}
@@ -0,0 +1,82 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.CoreKt;
+import net.onedaybeard.graftt.asm.AsmKtKt;
+import net.onedaybeard.graftt.asm.ClassNodeExtKt;
+import net.onedaybeard.graftt.graft.OperationsKt;
+import net.onedaybeard.graftt.graft.PhaseListener;
+import net.onedaybeard.graftt.graft.Verification;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+import org.objectweb.asm.tree.ClassNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.michaelbull.result.UnwrapKt.unwrap;
+import static java.util.Collections.singletonList;
+import static net.onedaybeard.graftt.benchmarks.Recipients.RECIPIENT;
+import static net.onedaybeard.graftt.benchmarks.Recipients.TRANSPLANT;
+
+/**
+ * Each phase of the tree engine in isolation: parsing the recipient,
+ * grafting onto it without verification, verifying and writing the
+ * grafted class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhaseBenchmark {
+
+    @Param({"1", "100", "1000", "5000"})
+    public int methods;
+
+    private byte[] recipientBytes;
+    private List<ClassNode> donors;
+    private Remapper remapper;
+
+    private ClassNode grafted;
+    private ClassNode recipient;
+
+    @Setup
+    public void setup() {
+        recipientBytes = Recipients.recipient(methods);
+        donors = singletonList(AsmKtKt.classNode(Recipients.transplant()));
+        remapper = new SimpleRemapper(TRANSPLANT, RECIPIENT);
+        grafted = graft(AsmKtKt.classNode(recipientBytes));
+    }
+
+    /** surgery mutates the recipient */
+    @Setup(Level.Invocation)
+    public void parseRecipient() {
+        recipient = AsmKtKt.classNode(recipientBytes);
+    }
+
+    @Benchmark
+    public ClassNode classNode() {
+        return AsmKtKt.classNode(recipientBytes);
+    }
+
+    @Benchmark
+    public ClassNode transplant() {
+        return graft(recipient);
+    }
+
+    @Benchmark
+    public Object verify() {
+        return CoreKt.verify(grafted);
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return ClassNodeExtKt.toBytes(grafted);
+    }
+
+    private ClassNode graft(ClassNode cn) {
+        return unwrap(OperationsKt.transplant(donors, cn, remapper, PhaseListener.Companion.getNONE(), Verification.OFF));
+    }
+}
@@ -0,0 +1,158 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.Graft;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Synthetic recipients and transplants, generated with ASM. Recipients
+ * resemble generated code: many small methods, of which only one is
+ * fused by the transplant.
+ */
+public final class Recipients {
+    private Recipients() {}
+
+    public static final String RECIPIENT = "bench/Recipient";
+    public static final String TRANSPLANT = "bench/RecipientTransplant";
+
+    /** {@link #RECIPIENT} declaring {@code int m0(int)} to {@code int m<methods - 1>(int)} */
+    public static byte[] recipient(int methods) {
+        return recipient(methods, 0);
+    }
+
+    /** as {@link #recipient(int)}, also declaring {@code int f0} to {@code int f<fields - 1>} */
+    public static byte[] recipient(int methods, int fields) {
+        return recipient(RECIPIENT, methods, fields, 0);
+    }
+
+    /**
+     * Recipient named {@code name}, as {@link #recipient(int, int)}. Each method is
+     * annotated with {@code annotations} distinct annotations, e.g. {@code @A0(0)}.
+     */
+    public static byte[] recipient(String name, int methods, int fields, int annotations) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_SUPER, name, null, "java/lang/Object", null);
+        constructor(cw);
+
+        for (int i = 0; i < fields; i++)
+            cw.visitField(ACC_PUBLIC, "f" + i, "I", null, null).visitEnd();
+
+        for (int i = 0; i < methods; i++) {
+            MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "m" + i, "(I)I", null, null);
+            for (int a = 0; a < annotations; a++) {
+                AnnotationVisitor av = mv.visitAnnotation("Lbench/A" + a + ";", false);
+                av.visit("value", i);
+                av.visitEnd();
+            }
+            mv.visitCode();
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitLdcInsn(i);
+            mv.visitInsn(IMUL);
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitInsn(ICONST_1);
+            mv.visitInsn(ISHR);
+            mv.visitInsn(IXOR);
+            mv.visitLdcInsn("m" + i);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "hashCode", "()I", false);
+            mv.visitInsn(IADD);
+            mv.visitInsn(IRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /** fuses {@code m0} and adds {@code int added(int)} to {@link #RECIPIENT} */
+    public static byte[] transplant() {
+        return transplant(TRANSPLANT, RECIPIENT);
+    }
+
+    /** transplant named {@code name}, fusing {@code m0} and adding {@code int added(int)} to {@code recipient} */
+    public static byte[] transplant(String name, String recipient) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_SUPER, name, null, "java/lang/Object", null);
+
+        AnnotationVisitor av = cw.visitAnnotation(Type.getDescriptor(Graft.Recipient.class), false);
+        av.visit("value", Type.getObjectType(recipient));
+        av.visitEnd();
+        constructor(cw);
+
+        MethodVisitor fused = cw.visitMethod(ACC_PUBLIC, "m0", "(I)I", null, null);
+        fused.visitAnnotation(Type.getDescriptor(Graft.Fuse.class), false).visitEnd();
+        fused.visitCode();
+        fused.visitVarInsn(ALOAD, 0);
+        fused.visitVarInsn(ILOAD, 1);
+        fused.visitMethodInsn(INVOKEVIRTUAL, name, "m0", "(I)I", false);
+        fused.visitInsn(ICONST_1);
+        fused.visitInsn(IADD);
+        fused.visitInsn(IRETURN);
+        fused.visitMaxs(0, 0);
+        fused.visitEnd();
+
+        MethodVisitor added = cw.visitMethod(ACC_PUBLIC, "added", "(I)I", null, null);
+        added.visitCode();
+        added.visitVarInsn(ILOAD, 1);
+        added.visitInsn(ICONST_2);
+        added.visitInsn(IMUL);
+        added.visitInsn(IRETURN);
+        added.visitMaxs(0, 0);
+        added.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Fuses every {@code stride}th method and field of a {@link #recipient(int, int)}:
+     * {@code m0}, {@code m<stride>}, ... and {@code f0}, {@code f<stride>}, ...
+     */
+    public static byte[] fusingTransplant(int methods, int fields, int stride) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_SUPER, TRANSPLANT, null, "java/lang/Object", null);
+
+        AnnotationVisitor av = cw.visitAnnotation(Type.getDescriptor(Graft.Recipient.class), false);
+        av.visit("value", Type.getObjectType(RECIPIENT));
+        av.visitEnd();
+        constructor(cw);
+
+        for (int i = 0; i < fields; i += stride) {
+            FieldVisitor fv = cw.visitField(ACC_PUBLIC, "f" + i, "I", null, null);
+            fv.visitAnnotation(Type.getDescriptor(Graft.Fuse.class), false).visitEnd();
+            fv.visitEnd();
+        }
+
+        for (int i = 0; i < methods; i += stride) {
+            MethodVisitor fused = cw.visitMethod(ACC_PUBLIC, "m" + i, "(I)I", null, null);
+            fused.visitAnnotation(Type.getDescriptor(Graft.Fuse.class), false).visitEnd();
+            fused.visitCode();
+            fused.visitVarInsn(ALOAD, 0);
+            fused.visitVarInsn(ILOAD, 1);
+            fused.visitMethodInsn(INVOKEVIRTUAL, TRANSPLANT, "m" + i, "(I)I", false);
+            fused.visitInsn(ICONST_1);
+            fused.visitInsn(IADD);
+            fused.visitInsn(IRETURN);
+            fused.visitMaxs(0, 0);
+            fused.visitEnd();
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void constructor(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+}
@@ -0,0 +1,98 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.CoreKt;
+import net.onedaybeard.graftt.agent.Donor;
+import net.onedaybeard.graftt.agent.TransplantRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TransplantRegistry} under contention: class loading threads
+ * looking up recipients while others register transplants, as when
+ * recipients load during the background registration of {@code cp}.
+ * Registrations cycle through a fixed set of donors, re-registering
+ * each in turn, so the registry stays at {@code donors} transplants.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryContentionBenchmark {
+
+    @Param({"100", "1000"})
+    public int donors;
+
+    private TransplantRegistry registry;
+    private Donor[] registered;
+    private String[] recipients;
+
+    @Setup
+    public void setup() {
+        registry = new TransplantRegistry();
+        registered = new Donor[donors];
+        recipients = new String[donors];
+        for (int i = 0; i < donors; i++) {
+            recipients[i] = Corpus.recipient(i);
+            byte[] transplant = Recipients.transplant(Corpus.transplant(i), recipients[i]);
+            registered[i] = new Donor(transplant, CoreKt.contentHash(transplant));
+            registry.register(registered[i], recipients[i]);
+        }
+    }
+
+    /** position of each thread in {@code registered} */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next(int size) {
+            next = (next + 1) % size;
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Group("lookups")
+    @GroupThreads(3)
+    public List<Donor> lookupWhileRegistering(Cursor cursor) {
+        return lookup(cursor);
+    }
+
+    @Benchmark
+    @Group("lookups")
+    @GroupThreads(1)
+    public void registerWhileLookingUp(Cursor cursor) {
+        register(cursor);
+    }
+
+    @Benchmark
+    @Group("registrations")
+    @GroupThreads(1)
+    public List<Donor> lookupWhileRegistrationsDominate(Cursor cursor) {
+        return lookup(cursor);
+    }
+
+    @Benchmark
+    @Group("registrations")
+    @GroupThreads(3)
+    public void registerConcurrently(Cursor cursor) {
+        register(cursor);
+    }
+
+    /** as {@code transform}: the fast path check, then the snapshot for grafting */
+    private List<Donor> lookup(Cursor cursor) {
+        String recipient = recipients[cursor.next(donors)];
+        if (!registry.contains(recipient))
+            return null;
+
+        return registry.snapshot().getTransplants().get(recipient);
+    }
+
+    private void register(Cursor cursor) {
+        int i = cursor.next(donors);
+        registry.register(registered[i], recipients[i]);
+    }
+}
@@ -0,0 +1,70 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import static net.onedaybeard.graftt.benchmarks.GraftedLookup.*;
+
+/**
+ * Cost per call of grafted methods, compared to the unmodified recipient:
+ * a fuse only calling {@code $original}, a fuse maintaining counters in
+ * added fields, and a method added along with its interface.
+ * <p/>
+ * Forks print HotSpot's inlining decisions; a grafted method failing to
+ * inline where the original did shows up as e.g. {@code hot method too big}
+ * next to the grafted method or its {@code $original} call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-XX:+UnlockDiagnosticVMOptions", "-XX:+PrintInlining"})
+public class RuntimeOverheadBenchmark {
+
+    private IntUnaryOperator original;
+    private IntUnaryOperator passthrough;
+    private IntUnaryOperator counting;
+
+    private Sized declared;
+    private Sized added;
+
+    private int index;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        original = new Lookup();
+        passthrough = (IntUnaryOperator) Grafted.instance(Lookup.class, PassthroughTransplant.class);
+        counting = (IntUnaryOperator) Grafted.instance(Lookup.class, CountingTransplant.class);
+
+        declared = new SizedLookup();
+        added = (Sized) Grafted.instance(Lookup.class, SizedTransplant.class);
+    }
+
+    @Benchmark
+    public int original() {
+        return original.applyAsInt(index++);
+    }
+
+    @Benchmark
+    public int passthrough() {
+        return passthrough.applyAsInt(index++);
+    }
+
+    @Benchmark
+    public int counting() {
+        return counting.applyAsInt(index++);
+    }
+
+    @Benchmark
+    public int declaredInterface() {
+        return declared.size();
+    }
+
+    @Benchmark
+    public int addedInterface() {
+        return added.size();
+    }
+}
@@ -0,0 +1,136 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.CoreKt;
+import net.onedaybeard.graftt.agent.GraftTransformer;
+import net.onedaybeard.graftt.graft.DiscoveryKt;
+import net.onedaybeard.graftt.graft.JarTransplantKt;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Growth of time and heap with the size of the classpath, from a thousand
+ * to 60000 classes of a synthetic {@link Corpus}. One in a hundred classes
+ * has a transplant. Run with the peak heap profiler:
+ * <pre>
+ * java -jar benchmarks.jar ScalingBenchmark -prof net.onedaybeard.graftt.benchmarks.PeakHeapProfiler
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ScalingBenchmark {
+
+    @Param({"1000", "10000", "60000"})
+    public int classes;
+
+    @Param({"20"})
+    public int methods;
+
+    @Param({"2"})
+    public int annotations;
+
+    private File root;
+    private File directory;
+    private File jar;
+
+    @Setup
+    public void setup() throws IOException {
+        Corpus corpus = new Corpus(classes, methods, classes / 100, annotations);
+
+        root = Files.createTempDirectory("graftt-corpus").toFile();
+        directory = new File(root, "classes");
+        jar = new File(root, "classes.jar");
+
+        corpus.writeDirectory(directory);
+        corpus.writeJar(jar);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Corpus.delete(root);
+    }
+
+    /** copy of the class directory, as the transplant goal rewrites it */
+    @State(Scope.Benchmark)
+    public static class Workspace {
+        File classDir;
+
+        @Setup(Level.Invocation)
+        public void copy(ScalingBenchmark corpus) throws IOException {
+            classDir = new File(corpus.root, "workspace");
+            Corpus.copy(corpus.directory, classDir);
+        }
+
+        @TearDown(Level.Invocation)
+        public void delete() throws IOException {
+            Corpus.delete(classDir);
+        }
+    }
+
+    /** all class files, as passed to the agent by the JVM */
+    @State(Scope.Benchmark)
+    public static class Loading {
+        List<String> names;
+        List<byte[]> classfiles;
+
+        @Setup
+        public void read(ScalingBenchmark corpus) {
+            classfiles = CoreKt.classfiles(corpus.jar);
+            names = new ArrayList<>(classfiles.size());
+            for (byte[] classfile : classfiles)
+                names.add(new ClassReader(classfile).getClassName());
+        }
+    }
+
+    @Benchmark
+    public List<ClassNode> classNodesDirectory() {
+        return CoreKt.classNodes(directory);
+    }
+
+    @Benchmark
+    public List<ClassNode> classNodesJar() {
+        return CoreKt.classNodes(jar);
+    }
+
+    @Benchmark
+    public void generateIndex(Workspace workspace) throws Exception {
+        Mojos.generateIndex(workspace.classDir).execute();
+    }
+
+    @Benchmark
+    public void transplant(Workspace workspace) throws Exception {
+        Mojos.transplant(workspace.classDir).execute();
+    }
+
+    /** grafts the jar into a patched copy, as the transplant-jar goal */
+    @Benchmark
+    public Object transplantJar() {
+        return JarTransplantKt.transplantJar(jar, new File(root, "grafted.jar"), DiscoveryKt.transplants(jar));
+    }
+
+    /** registers all transplants, then transforms every class; returns classes grafted */
+    @Benchmark
+    public int agent(Loading loading) {
+        GraftTransformer transformer = new GraftTransformer();
+        transformer.register(jar);
+
+        int grafted = 0;
+        for (int i = 0; i < loading.classfiles.size(); i++) {
+            if (transformer.transform(null, loading.names.get(i), null, null, loading.classfiles.get(i)) != null)
+                grafted++;
+        }
+
+        return grafted;
+    }
+}
@@ -0,0 +1,56 @@
+package net.onedaybeard.graftt.benchmarks;
+
+import net.onedaybeard.graftt.asm.AsmKtKt;
+import net.onedaybeard.graftt.asm.ClassNodeExtKt;
+import net.onedaybeard.graftt.graft.OperationsKt;
+import net.onedaybeard.graftt.graft.StreamingKt;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+import org.objectweb.asm.tree.ClassNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.michaelbull.result.UnwrapKt.unwrap;
+import static java.util.Collections.singletonList;
+import static net.onedaybeard.graftt.benchmarks.Recipients.RECIPIENT;
+import static net.onedaybeard.graftt.benchmarks.Recipients.TRANSPLANT;
+
+/**
+ * Tree versus streaming engine: class file in, grafted class file out.
+ * Run with {@code -prof gc} for allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransplantEngineBenchmark {
+
+    @Param({"10", "500", "2000"})
+    public int methods;
+
+    private byte[] recipient;
+    private List<ClassNode> donors;
+    private Remapper remapper;
+
+    @Setup
+    public void setup() {
+        recipient = Recipients.recipient(methods);
+        donors = singletonList(AsmKtKt.classNode(Recipients.transplant()));
+        remapper = new SimpleRemapper(TRANSPLANT, RECIPIENT);
+    }
+
+    @Benchmark
+    public byte[] tree() {
+        ClassNode cn = AsmKtKt.classNode(recipient);
+        return ClassNodeExtKt.toBytes(unwrap(OperationsKt.transplant(donors, cn, remapper)));
+    }
+
+    @Benchmark
+    public byte[] streaming() {
+        return unwrap(StreamingKt.transplant(donors, recipient, remapper));
+    }
+}
@@ -0,0 +1,119 @@
+package net.onedaybeard.graftt
+
+import java.io.File
+import java.io.FileNotFoundException
+import java.io.InputStream
+import java.nio.file.Files
+import java.util.ArrayDeque
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.Future
+import java.util.zip.ZipFile
+
+/** worker threads reading and transforming class files */
+val READER_THREADS = Runtime.getRuntime().availableProcessors()
+
+/** class files read ahead of the consumer, per worker */
+private const val READ_AHEAD = 8
+
+private val readers: ForkJoinPool by lazy { ForkJoinPool(READER_THREADS) }
+
+/**
+ * Reads all class files under [root], a directory or jar file, applying
+ * [transform] on [READER_THREADS] workers. [action] receives the results
+ * on the calling thread, in a deterministic order: sorted by path for
+ * directories, as stored for jars. `null` results are skipped.
+ *
+ * Only a bounded number of class files are read ahead of [action];
+ * memory stays flat regardless of the number of classes.
+ */
+fun <T : Any> forEachClassfile(
+    root: File,
+    transform: (ByteArray) -> T?,
+    action: (T) -> Unit
+) = when {
+    root.exists().not()     -> throw FileNotFoundException(root.path)
+    root.isDirectory        -> readOrdered(classfileReaders(root), transform, action)
+    root.extension == "jar" -> forEachJarEntry(root, transform, action)
+    else                    -> throw IllegalStateException(root.path)
+}
+
+/** as [forEachClassfile], collecting the results */
+fun <T : Any> mapClassfiles(root: File, transform: (ByteArray) -> T?): List<T> =
+    mutableListOf<T>().also { results -> forEachClassfile(root, transform) { results += it } }
+
+/**
+ * Submits [reads] to the workers, at most [READ_AHEAD] per worker ahead
+ * of the oldest unconsumed result, passing results to [action] in order.
+ */
+private fun <T : Any> readOrdered(
+    reads: List<() -> ByteArray>,
+    transform: (ByteArray) -> T?,
+    action: (T) -> Unit
+) {
+    // nothing to gain from handing over to a single worker
+    if (READER_THREADS == 1)
+        return reads.forEach { read -> transform(read())?.let(action) }
+
+    val pending = ArrayDeque<Future<T?>>()
+    val remaining = reads.iterator()
+    try {
+        while (remaining.hasNext() || pending.isNotEmpty()) {
+            while (remaining.hasNext() && pending.size < READER_THREADS * READ_AHEAD) {
+                val read = remaining.next()
+                pending += readers.submit(Callable { transform(read()) })
+            }
+
+            pending.poll().await()?.let(action)
+        }
+    } finally {
+        pending.forEach { it.cancel(false) }
+    }
+}
+
+/** result of the worker; exceptions are rethrown as thrown by the worker */
+private fun <T> Future<T>.await(): T = try {
+    get()
+} catch (e: ExecutionException) {
+    throw e.cause ?: e
+}
+
+private fun classfileReaders(root: File): List<() -> ByteArray> = root.walk()
+    .filter { it.extension == "class" }
+    .map { file -> file.relativeTo(root).invariantSeparatorsPath to file }
+    .sortedBy { (path, _) -> path }
+    .map { (_, file) -> { Files.readAllBytes(file.toPath()) } }
+    .toList()
+
+/** reads [jar] through its central directory, inflating entries on the workers; falls back to [ZipFile] */
+private fun <T : Any> forEachJarEntry(
+    jar: File,
+    transform: (ByteArray) -> T?,
+    action: (T) -> Unit
+) {
+    val archive = try {
+        ZipArchive.open(jar)
+    } catch (e: IllegalStateException) {
+        null // e.g. zip64 or encrypted entries
+    }
+
+    if (archive != null) {
+        archive.use {
+            val reads = archive.entries
+                .filter { it.name.endsWith(".class") }
+                .map { entry -> { entry.read() } }
+
+            readOrdered(reads, transform, action)
+        }
+    } else {
+        ZipFile(jar).use { zip ->
+            val reads = zip.entries().asSequence()
+                .filter { it.name.endsWith(".class") }
+                .map { entry -> { zip.getInputStream(entry).use(InputStream::readBytes) } }
+                .toList()
+
+            readOrdered(reads, transform, action)
+        }
+    }
+}
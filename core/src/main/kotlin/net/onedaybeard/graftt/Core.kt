@@ -16,12 +16,10 @@ import org.objectweb.asm.tree.analysis.BasicVerifier
 import org.objectweb.asm.util.CheckClassAdapter
 import org.objectweb.asm.util.TraceClassVisitor
 import java.io.File
-import java.io.FileNotFoundException
 import java.io.PrintWriter
 import java.io.StringWriter
-import java.lang.IllegalStateException
 import java.lang.RuntimeException
-import java.util.zip.ZipFile
+import java.security.MessageDigest
 
 @Suppress("NonAsciiCharacters", "ObjectPropertyName", "unused")
 val `(╯°□°）╯︵ ┻━┻`: (Msg) -> Nothing = { throw it.toException() }
@@ -48,8 +46,9 @@ fun ClassNode.toDebugString(): String {
 }
 
 fun verify(source: ClassNode): Result<ClassNode, Msg> {
+    // data flow is analyzed below, reporting all methods instead of throwing on the first
     val cn = ClassNode()
-    CheckClassAdapter(cn, true)
+    CheckClassAdapter(cn, false)
         .also(source::accept)
 
     val sw = StringWriter()
@@ -69,31 +68,18 @@ fun verify(source: ClassNode): Result<ClassNode, Msg> {
     }
 }
 
-/** reads all classes, where [root] points to a root directory or jar file */
-fun classNodes(root: File): List<ClassNode> = when {
-    root.exists().not()     -> throw FileNotFoundException(root.path)
-    root.isDirectory        -> classesDir(root)
-    root.extension == "jar" -> classesJar(root)
-    else                    -> throw IllegalStateException(root.path)
+/** SHA-256 digest over all [chunks], in order */
+fun contentHash(vararg chunks: ByteArray): ByteArray {
+    val md = MessageDigest.getInstance("SHA-256")
+    chunks.forEach(md::update)
+    return md.digest()
 }
 
-private fun classesJar(root: File): List<ClassNode> {
-    return ZipFile(root).use { archive ->
-        archive.entries()
-            .asSequence()
-            .filter { it.name.endsWith(".class") }
-            .map(archive::getInputStream)
-            .map(::classNode)
-            .toList()
-    }
-}
+/** reads all classes, where [root] points to a root directory or jar file */
+fun classNodes(root: File): List<ClassNode> = mapClassfiles(root, ::classNode)
 
-private fun classesDir(root: File): List<ClassNode> {
-    return root.walk()
-        .filter { it.extension == "class" }
-        .map(::classNode)
-        .toList()
-}
+/** reads all class files, where [root] points to a root directory or jar file */
+fun classfiles(root: File): List<ByteArray> = mapClassfiles(root) { it }
 
 class GraftException(message: String, cause: Throwable? = null)
     : RuntimeException(message, cause) {
@@ -0,0 +1,85 @@
+package net.onedaybeard.graftt
+
+import java.io.*
+
+/** first bytes of `graftt.prebaked` */
+private const val MAGIC = 0xCAFE_BA6E.toInt()
+private const val VERSION = 1
+
+/** recipient grafted at build time, as recorded in `graftt.prebaked` */
+class PrebakedClass(
+    /** internal name of the recipient */
+    val recipient: String,
+    /** [contentHash] of the recipient's class file prior to grafting */
+    val recipientHash: ByteArray,
+    /** [donorsHash] of the transplants grafted onto the recipient */
+    val donorsHash: ByteArray,
+    /** grafted class file */
+    val classfile: ByteArray
+) {
+    /** true if grafted from [recipient] and donors with [donorsHash] */
+    fun matches(recipient: ByteArray, donorsHash: ByteArray?): Boolean =
+        (donorsHash == null || donorsHash.contentEquals(this.donorsHash))
+            && contentHash(recipient).contentEquals(recipientHash)
+}
+
+/** [contentHash] over the [contentHash]es of all donors, ordered by donor name */
+fun donorsHash(digests: List<ByteArray>): ByteArray = contentHash(*digests.toTypedArray())
+
+/**
+ * Writes a `graftt.prebaked` archive, readable by [readPrebaked]: a table
+ * of recipients and hashes, followed by the grafted class files.
+ */
+fun writePrebaked(classes: List<PrebakedClass>, out: OutputStream) {
+    DataOutputStream(out.buffered()).use { data ->
+        data.writeInt(MAGIC)
+        data.writeShort(VERSION)
+        data.writeInt(classes.size)
+
+        var offset = 0
+        for (prebaked in classes) {
+            data.writeUTF(prebaked.recipient)
+            data.writeShort(prebaked.recipientHash.size)
+            data.write(prebaked.recipientHash)
+            data.writeShort(prebaked.donorsHash.size)
+            data.write(prebaked.donorsHash)
+            data.writeInt(offset)
+            data.writeInt(prebaked.classfile.size)
+            offset += prebaked.classfile.size
+        }
+
+        classes.forEach { data.write(it.classfile) }
+    }
+}
+
+/** reads a `graftt.prebaked` archive written by [writePrebaked], keyed by recipient */
+fun readPrebaked(archive: ByteArray): Map<String, PrebakedClass> {
+    val data = DataInputStream(archive.inputStream())
+    if (data.readInt() != MAGIC)
+        throw IOException("not a graftt.prebaked archive")
+
+    val version = data.readUnsignedShort()
+    if (version != VERSION)
+        throw IOException("unsupported graftt.prebaked version: $version")
+
+    class Record(val recipient: String, val recipientHash: ByteArray, val donorsHash: ByteArray, val offset: Int, val size: Int)
+
+    val records = (0 until data.readInt()).map {
+        Record(
+            recipient = data.readUTF(),
+            recipientHash = ByteArray(data.readUnsignedShort()).also(data::readFully),
+            donorsHash = ByteArray(data.readUnsignedShort()).also(data::readFully),
+            offset = data.readInt(),
+            size = data.readInt())
+    }
+
+    // class files follow the table
+    val start = archive.size - data.available()
+    return records.associate { r ->
+        val from = start + r.offset
+        if (r.offset < 0 || r.size < 0 || from + r.size > archive.size)
+            throw IOException("truncated graftt.prebaked archive: ${r.recipient}")
+
+        r.recipient to PrebakedClass(r.recipient, r.recipientHash, r.donorsHash, archive.copyOfRange(from, from + r.size))
+    }
+}
@@ -0,0 +1,71 @@
+package net.onedaybeard.graftt
+
+import java.io.*
+
+/** first bytes of a binary `graftt.index`; text indices can't start with these */
+private const val MAGIC = 0xCAFE_F00D.toInt()
+private const val VERSION = 1
+
+/** transplant as recorded in a binary `graftt.index` */
+class IndexEntry(
+    /** internal name of the transplant */
+    val donor: String,
+    /** internal name of the recipient */
+    val recipient: String,
+    /** [contentHash] of the transplant's class file */
+    val hash: ByteArray,
+    /** class file of the transplant, when embedded in the index */
+    val classfile: ByteArray? = null,
+    /** `Graft.Profile` of the transplant; empty if applicable to all profiles */
+    val profiles: List<String> = listOf()
+)
+
+/**
+ * Binary indices let the agent register transplants without loading
+ * them as classes. Text indices list one qualified transplant name
+ * per line.
+ */
+fun isBinaryIndex(index: ByteArray): Boolean =
+    index.size >= 4 && DataInputStream(index.inputStream()).readInt() == MAGIC
+
+/** writes a binary index, readable by [readIndex] */
+fun writeIndex(entries: List<IndexEntry>, out: OutputStream) {
+    DataOutputStream(out.buffered()).use { data ->
+        data.writeInt(MAGIC)
+        data.writeShort(VERSION)
+        data.writeInt(entries.size)
+        for (entry in entries) {
+            data.writeUTF(entry.donor)
+            data.writeUTF(entry.recipient)
+            data.writeShort(entry.hash.size)
+            data.write(entry.hash)
+            data.writeInt(entry.classfile?.size ?: -1)
+            entry.classfile?.let(data::write)
+            data.writeShort(entry.profiles.size)
+            entry.profiles.forEach(data::writeUTF)
+        }
+    }
+}
+
+/** reads a binary index written by [writeIndex] */
+fun readIndex(index: ByteArray): List<IndexEntry> {
+    val data = DataInputStream(index.inputStream())
+    if (data.readInt() != MAGIC)
+        throw IOException("not a binary graftt.index")
+
+    val version = data.readUnsignedShort()
+    if (version != VERSION)
+        throw IOException("unsupported graftt.index version: $version")
+
+    return (0 until data.readInt()).map {
+        val donor = data.readUTF()
+        val recipient = data.readUTF()
+        val hash = ByteArray(data.readUnsignedShort()).also(data::readFully)
+        val classfile = data.readInt()
+            .takeIf { it >= 0 }
+            ?.let { size -> ByteArray(size).also(data::readFully) }
+        val profiles = (0 until data.readUnsignedShort()).map { data.readUTF() }
+
+        IndexEntry(donor, recipient, hash, classfile, profiles)
+    }
+}
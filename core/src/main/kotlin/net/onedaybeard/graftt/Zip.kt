@@ -0,0 +1,329 @@
+package net.onedaybeard.graftt
+
+import java.io.ByteArrayOutputStream
+import java.io.Closeable
+import java.io.File
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.channels.WritableByteChannel
+import java.nio.file.StandardOpenOption.READ
+import java.util.zip.CRC32
+import java.util.zip.Deflater
+import java.util.zip.DeflaterOutputStream
+import java.util.zip.Inflater
+
+// zip format, see APPNOTE.TXT §4.3
+private const val LOCAL_HEADER       = 0x04034b50
+private const val CENTRAL_HEADER     = 0x02014b50
+private const val END_OF_CENTRAL_DIR = 0x06054b50
+private const val DATA_DESCRIPTOR    = 0x08074b50
+private const val STORED             = 0
+private const val DEFLATED           = 8
+private const val ENCRYPTED          = 1
+private const val HAS_DESCRIPTOR     = 1 shl 3
+private const val UTF8_NAMES         = 1 shl 11
+private const val ZIP64_EXTRA        = 0x0001
+
+/**
+ * Zip archive read through its central directory, which is loaded on
+ * [open]. Entries are read with positional reads on the file channel,
+ * safe for concurrent use, until the archive is closed.
+ */
+internal class ZipArchive private constructor(private val channel: FileChannel) : Closeable {
+    private val directory: ByteBuffer = readDirectory()
+    val entries: List<Entry> = readEntries()
+
+    /** entry as recorded by the central directory */
+    inner class Entry internal constructor(
+        val name: String,
+        private val central: Int
+    ) {
+        val flags: Int          get() = directory.u2(central + 8)
+        val method: Int         get() = directory.u2(central + 10)
+        val compressedSize: Int get() = directory.getInt(central + 20)
+        val size: Int           get() = directory.getInt(central + 24)
+        val localHeader: Long   get() = directory.getInt(central + 42).toLong() and 0xffffffff
+
+        /** bytes of the central directory record */
+        internal val centralLength: Int
+            get() = 46 + directory.u2(central + 28) + directory.u2(central + 30) + directory.u2(central + 32)
+
+        /** offset of the entry's data, past its local header */
+        private fun data(): Long {
+            val header = read(localHeader, 30)
+            check(header.getInt(0) == LOCAL_HEADER) { "bad local header: $name" }
+            return localHeader + 30 + header.u2(26) + header.u2(28)
+        }
+
+        /** local header, data and data descriptor, if any */
+        private fun localLength(data: Long): Int {
+            val end = data + compressedSize
+            val descriptor = when {
+                flags and HAS_DESCRIPTOR == 0                    -> 0
+                read(end, 4).getInt(0) == DATA_DESCRIPTOR -> 16
+                else                                             -> 12
+            }
+            return (end + descriptor - localHeader).toInt()
+        }
+
+        /** uncompressed content */
+        fun read(): ByteArray {
+            val data = data()
+            if (method == STORED)
+                return read(data, size).array()
+
+            // trailing dummy byte, as required by nowrap inflaters
+            val compressed = ByteArray(compressedSize + 1)
+            read(data, compressedSize).get(compressed, 0, compressedSize)
+
+            val inflater = Inflater(true)
+            try {
+                inflater.setInput(compressed)
+                val bytes = ByteArray(size)
+                var inflated = 0
+                while (inflated < size && !inflater.finished()) {
+                    val n = inflater.inflate(bytes, inflated, size - inflated)
+                    check(n > 0 || !inflater.needsInput()) { "truncated entry: $name" }
+                    inflated += n
+                }
+
+                check(inflated == size) { "truncated entry: $name" }
+                return bytes
+            } finally {
+                inflater.end()
+            }
+        }
+
+        /** extra field of the local header; may differ from the central directory's */
+        internal fun localExtra(): ByteArray {
+            val header = read(localHeader, 30)
+            return read(localHeader + 30 + header.u2(26), header.u2(28)).array()
+        }
+
+        /** local header, data and data descriptor, as stored */
+        internal fun local(): ByteBuffer = read(localHeader, localLength(data()))
+
+        /** copies [local] to [target], without reading it onto the heap when possible */
+        internal fun transferTo(target: WritableByteChannel): Int {
+            val length = localLength(data())
+            var transferred = 0L
+            while (transferred < length) {
+                val n = channel.transferTo(localHeader + transferred, length - transferred, target)
+                check(n > 0) { "truncated entry: $name" }
+                transferred += n
+            }
+
+            return length
+        }
+
+        internal fun central(): ByteArray =
+            ByteArray(centralLength).also { (directory.duplicate().position(central) as ByteBuffer).get(it) }
+    }
+
+    override fun close() = channel.close()
+
+    /** central directory, or an [IllegalStateException] for unsupported archives */
+    private fun readDirectory(): ByteBuffer {
+        val size = channel.size()
+        check(size <= 0xffffffffL) { "zip64 not supported" }
+
+        val tailLength = minOf(size, 22L + 0xffff).toInt()
+        val tail = read(size - tailLength, tailLength)
+        val end = (tailLength - 22 downTo 0)
+            .firstOrNull { i -> tail.getInt(i) == END_OF_CENTRAL_DIR }
+            ?: throw IllegalStateException("end of central directory not found")
+
+        val count = tail.u2(end + 10)
+        val length = tail.getInt(end + 12).toLong() and 0xffffffff
+        val offset = tail.getInt(end + 16).toLong() and 0xffffffff
+        check(count != 0xffff && offset + length <= size) { "zip64 not supported" }
+
+        return read(offset, length.toInt())
+    }
+
+    private fun readEntries(): List<Entry> {
+        var i = 0
+        val entries = mutableListOf<Entry>()
+        while (i < directory.limit()) {
+            check(directory.getInt(i) == CENTRAL_HEADER) { "bad central directory header: $i" }
+
+            val name = ByteArray(directory.u2(i + 28)).also { (directory.duplicate().position(i + 46) as ByteBuffer).get(it) }
+            val entry = Entry(String(name, Charsets.UTF_8), i)
+            check(entry.flags and ENCRYPTED == 0) { "encrypted entry: ${entry.name}" }
+            check(entry.method == STORED || entry.method == DEFLATED) { "unsupported compression: ${entry.name}" }
+            check(entry.compressedSize >= 0 && entry.size >= 0) { "zip64 not supported" }
+
+            entries += entry
+            i += entry.centralLength
+        }
+
+        return entries
+    }
+
+    /** [length] bytes at [position], in a buffer of its own */
+    private fun read(position: Long, length: Int): ByteBuffer {
+        val buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN)
+        while (buffer.hasRemaining()) {
+            val n = channel.read(buffer, position + buffer.position())
+            check(n >= 0) { "unexpected end of archive: ${position + buffer.position()}" }
+        }
+
+        return buffer.apply { flip() }
+    }
+
+    companion object {
+        /** opens [file]; [IllegalStateException] unless a plain zip archive */
+        fun open(file: File): ZipArchive {
+            val channel = FileChannel.open(file.toPath(), READ)
+            return try {
+                ZipArchive(channel)
+            } catch (e: Exception) {
+                channel.close()
+                throw e
+            }
+        }
+    }
+}
+
+private fun ByteBuffer.u2(index: Int): Int = getShort(index).toInt() and 0xffff
+
+/**
+ * Writes a zip archive to [out], either copying entries of a [ZipArchive]
+ * as they are, compressed bytes included, or deflating new content.
+ */
+internal class ZipWriter(private val out: OutputStream) : Closeable {
+    private val centralDirectory = ByteArrayOutputStream()
+    private var entries = 0
+    private val channel = Channels.newChannel(out)
+    private var written = 0L
+
+    /** copies [entry] byte for byte */
+    fun copy(entry: ZipArchive.Entry) {
+        val central = ByteBuffer.wrap(entry.central()).order(ByteOrder.LITTLE_ENDIAN)
+        central.putInt(42, offset())
+        record(central.array())
+
+        written += entry.transferTo(channel)
+    }
+
+    /**
+     * Deflates [content] in place of [entry]. Name, timestamp, comment,
+     * file attributes and extra fields are kept, save for zip64 fields.
+     */
+    fun replace(entry: ZipArchive.Entry, content: ByteArray) {
+        val central = entry.central()
+        val original = ByteBuffer.wrap(central).order(ByteOrder.LITTLE_ENDIAN)
+        val nameEnd = 46 + original.u2(28)
+        val extraEnd = nameEnd + original.u2(30)
+
+        val name = central.copyOfRange(46, nameEnd)
+        val centralExtra = withoutZip64(central.copyOfRange(nameEnd, extraEnd))
+        val comment = central.copyOfRange(extraEnd, extraEnd + original.u2(32))
+        val localExtra = withoutZip64(entry.localExtra())
+
+        val crc = CRC32().apply { update(content) }.value.toInt()
+        val compressed = deflate(content)
+
+        fun header(signature: Int, size: Int, extra: ByteArray) = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN).apply {
+            putInt(signature)
+            if (signature == CENTRAL_HEADER)
+                putShort(original.getShort(4)) // version made by
+            putShort(20)                                              // version needed
+            putShort((original.getShort(8).toInt() and UTF8_NAMES).toShort()) // flags
+            putShort(DEFLATED.toShort())
+            putShort(original.getShort(12))                          // time
+            putShort(original.getShort(14))                          // date
+            putInt(crc)
+            putInt(compressed.size)
+            putInt(content.size)
+            putShort(name.size.toShort())
+            putShort(extra.size.toShort())
+        }
+
+        val centralRecord = header(CENTRAL_HEADER, 46 + name.size + centralExtra.size + comment.size, centralExtra).apply {
+            putShort(comment.size.toShort())
+            putShort(0)                     // disk
+            putShort(original.getShort(36)) // internal attributes
+            putInt(original.getInt(38))     // external attributes, e.g. unix file mode
+            putInt(offset())
+            put(name)
+            put(centralExtra)
+            put(comment)
+        }
+        record(centralRecord.array())
+
+        write(header(LOCAL_HEADER, 30, localExtra).array())
+        write(name)
+        write(localExtra)
+        write(compressed)
+    }
+
+    /** writes the central directory; [out] remains open */
+    override fun close() {
+        check(entries < 0xffff) { "zip64 not supported" }
+
+        val offset = offset()
+        val directory = centralDirectory.toByteArray()
+        write(directory)
+
+        val end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN).apply {
+            putInt(END_OF_CENTRAL_DIR)
+            putShort(0)
+            putShort(0)
+            putShort(entries.toShort())
+            putShort(entries.toShort())
+            putInt(directory.size)
+            putInt(offset)
+            putShort(0)
+        }
+        write(end.array())
+        out.flush()
+    }
+
+    private fun record(central: ByteArray) {
+        centralDirectory.write(central)
+        entries++
+    }
+
+    private fun write(bytes: ByteArray) {
+        out.write(bytes)
+        written += bytes.size
+    }
+
+    private fun offset(): Int {
+        check(written <= 0xffffffffL) { "zip64 not supported" }
+        return written.toInt()
+    }
+
+    /** [extra] without zip64 fields, as replaced entries never need them */
+    private fun withoutZip64(extra: ByteArray): ByteArray {
+        val fields = ByteBuffer.wrap(extra).order(ByteOrder.LITTLE_ENDIAN)
+        val kept = ByteArrayOutputStream(extra.size)
+        var i = 0
+        while (i + 4 <= extra.size) {
+            val length = 4 + fields.u2(i + 2)
+            if (i + length > extra.size)
+                break // malformed; dropped
+
+            if (fields.u2(i) != ZIP64_EXTRA)
+                kept.write(extra, i, length)
+            i += length
+        }
+
+        return kept.toByteArray()
+    }
+
+    private fun deflate(content: ByteArray): ByteArray {
+        val deflater = Deflater(Deflater.DEFAULT_COMPRESSION, true)
+        try {
+            val bytes = ByteArrayOutputStream(content.size / 2)
+            DeflaterOutputStream(bytes, deflater).use { it.write(content) }
+            return bytes.toByteArray()
+        } finally {
+            deflater.end()
+        }
+    }
+}
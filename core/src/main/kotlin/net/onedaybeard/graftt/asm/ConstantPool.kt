@@ -0,0 +1,118 @@
+package net.onedaybeard.graftt.asm
+
+import java.io.ByteArrayInputStream
+import java.io.DataInputStream
+
+// constant pool tags, see JVMS §4.4
+private const val UTF8                = 1
+private const val INTEGER             = 3
+private const val FLOAT               = 4
+private const val LONG                = 5
+private const val DOUBLE              = 6
+private const val CLASS               = 7
+private const val STRING              = 8
+private const val FIELD_REF           = 9
+private const val METHOD_REF          = 10
+private const val INTERFACE_METHOD    = 11
+private const val NAME_AND_TYPE       = 12
+private const val METHOD_HANDLE       = 15
+private const val METHOD_TYPE         = 16
+private const val DYNAMIC             = 17
+private const val INVOKE_DYNAMIC      = 18
+private const val MODULE              = 19
+private const val PACKAGE             = 20
+
+/**
+ * Scans the constant pool of [classfile] for a `CONSTANT_Utf8` entry equal
+ * to [utf8]. Nothing is allocated and no class structure is parsed, making
+ * it suitable as a pre-filter before a full [org.objectweb.asm.ClassReader]
+ * pass.
+ *
+ * Errs on the side of caution: returns `true` for malformed or unknown
+ * constant pool entries, deferring to ASM for reporting the error.
+ */
+fun constantPoolContains(classfile: ByteArray, utf8: ByteArray): Boolean =
+    scanUtf8(classfile) { offset, length -> classfile.regionEquals(offset, utf8, length) } ?: true
+
+/**
+ * Internal names of the types referenced by [classfile]: class constants,
+ * along with the object types of descriptors and signatures. Every
+ * `CONSTANT_Utf8` entry is included as it is, so the set also holds
+ * member names and strings; it answers whether a type may be referenced,
+ * it doesn't enumerate types.
+ */
+fun constantPoolTypes(classfile: ByteArray): Set<String> {
+    val types = mutableSetOf<String>()
+    scanUtf8(classfile) { offset, length ->
+        val utf8 = DataInputStream(ByteArrayInputStream(classfile, offset - 2, length + 2)).readUTF()
+        types += utf8
+
+        // object types, as in `(ILfoo/Bar;)V` and `Ljava/util/List<Lfoo/Bar;>;`
+        var start = utf8.indexOf('L')
+        while (start != -1) {
+            val end = utf8.indexOfAny(charArrayOf(';', '<'), start)
+            if (end == -1) break
+
+            types += utf8.substring(start + 1, end)
+            start = utf8.indexOf('L', end)
+        }
+
+        false
+    }
+
+    return types
+}
+
+/**
+ * Passes offset and length of each `CONSTANT_Utf8` value to [utf8], until
+ * it returns `true`. Returns `true` if stopped by [utf8], `false` once all
+ * entries are scanned and `null` for malformed or unknown entries.
+ */
+private inline fun scanUtf8(classfile: ByteArray, utf8: (offset: Int, length: Int) -> Boolean): Boolean? {
+    if (classfile.size < 10) return null
+
+    val count = classfile.u2(8)
+    var offset = 10
+    var index = 1
+    while (index < count) {
+        if (offset >= classfile.size) return null
+
+        offset += when (classfile[offset].toInt()) {
+            UTF8 -> {
+                val length = classfile.u2(offset + 1)
+                if (offset + 3 + length > classfile.size) return null
+                if (utf8(offset + 3, length))
+                    return true
+
+                3 + length
+            }
+            LONG, DOUBLE -> {
+                index++ // occupies two slots
+                9
+            }
+            INTEGER, FLOAT, FIELD_REF, METHOD_REF, INTERFACE_METHOD,
+            NAME_AND_TYPE, DYNAMIC, INVOKE_DYNAMIC -> 5
+            METHOD_HANDLE                        -> 4
+            CLASS, STRING, METHOD_TYPE, MODULE, PACKAGE -> 3
+            else                                 -> return null
+        }
+        index++
+    }
+
+    return false
+}
+
+private fun ByteArray.u2(offset: Int): Int =
+    ((this[offset].toInt() and 0xff) shl 8) or (this[offset + 1].toInt() and 0xff)
+
+private fun ByteArray.regionEquals(offset: Int, other: ByteArray, length: Int): Boolean {
+    if (length != other.size || offset + length > size)
+        return false
+
+    for (i in other.indices) {
+        if (this[offset + i] != other[i])
+            return false
+    }
+
+    return true
+}
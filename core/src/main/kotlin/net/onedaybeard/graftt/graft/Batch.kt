@@ -0,0 +1,81 @@
+package net.onedaybeard.graftt.graft
+
+import com.github.michaelbull.result.*
+import net.onedaybeard.graftt.Graft
+import net.onedaybeard.graftt.Msg
+import org.objectweb.asm.Type
+import org.objectweb.asm.commons.Remapper
+import org.objectweb.asm.commons.SimpleRemapper
+import org.objectweb.asm.tree.ClassNode
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
+
+/** outcome of [transplantAll], keyed by recipient */
+class Batch<T>(
+    /** grafted recipient, or the first error encountered grafting it */
+    val results: Map<Type, Result<T, Msg>>,
+    /** all errors, including donors lacking [Graft.Recipient] */
+    val errors: List<Msg>
+)
+
+/**
+ * Grafts all [donors] onto their [Graft.Recipient]s. Donors are grouped
+ * by recipient, and all groups share one [Remapper], substituting every
+ * donor with its recipient. Each recipient is loaded with [loadRecipient],
+ * grafted with its donors in a single pass and verified - with each donor
+ * remapped exactly once.
+ *
+ * Groups are processed in parallel on [pool]; [loadRecipient] and
+ * [listener] must be thread-safe.
+ */
+@JvmOverloads
+fun transplantAll(
+    donors: Collection<ClassNode>,
+    loadRecipient: (Type) -> Result<ClassNode, Msg>,
+    verification: Verification = Verification.FULL,
+    pool: ForkJoinPool = ForkJoinPool.commonPool(),
+    listener: PhaseListener = PhaseListener.NONE
+): Batch<ClassNode> = batch(donors, pool) { recipient, group, remapper ->
+    loadRecipient(recipient)
+        .andThen { cn -> transplant(group, cn, remapper, listener, verification) }
+}
+
+/**
+ * Streaming counterpart of [transplantAll]; recipients are loaded as
+ * class files with [loadRecipient] and grafted into class files.
+ */
+@JvmOverloads
+fun transplantAllClassfiles(
+    donors: Collection<ClassNode>,
+    loadRecipient: (Type) -> Result<ByteArray, Msg>,
+    verification: Verification = Verification.FULL,
+    pool: ForkJoinPool = ForkJoinPool.commonPool(),
+    listener: PhaseListener = PhaseListener.NONE
+): Batch<ByteArray> = batch(donors, pool) { recipient, group, remapper ->
+    loadRecipient(recipient)
+        .andThen { classfile -> transplant(group, classfile, remapper, listener, verification) }
+}
+
+private fun <T> batch(
+    donors: Collection<ClassNode>,
+    pool: ForkJoinPool,
+    graft: (Type, List<ClassNode>, Remapper) -> Result<T, Msg>
+): Batch<T> {
+    val recipients = donors.map { donor -> donor to readRecipientType(donor) }
+    val unresolved = recipients.mapNotNull { (_, recipient) -> recipient.getError() }
+
+    val groups = recipients
+        .mapNotNull { (donor, recipient) -> recipient.get()?.let { it to donor } }
+        .groupBy({ it.first }, { it.second })
+
+    val remapper = groups
+        .flatMap { (recipient, group) -> group.map { donor -> donor.name to recipient.internalName } }
+        .toMap()
+        .let(::SimpleRemapper)
+
+    val results = groups
+        .map { (recipient, group) -> recipient to pool.submit(Callable { graft(recipient, group, remapper) }) }
+        .associate { (recipient, task) -> recipient to task.join() }
+
+    return Batch(results, unresolved + results.values.mapNotNull(Result<T, Msg>::getError))
+}
@@ -0,0 +1,83 @@
+package net.onedaybeard.graftt.graft
+
+import net.onedaybeard.graftt.Graft
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.asm.type
+import net.onedaybeard.graftt.mapClassfiles
+import org.objectweb.asm.AnnotationVisitor
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.Opcodes.ASM7
+import org.objectweb.asm.Type
+import org.objectweb.asm.tree.ClassNode
+import java.io.File
+
+/** transplant found by scanning class headers; not yet parsed */
+class Discovered(
+    /** internal name of the transplant */
+    val name: String,
+    val recipient: String,
+    val classfile: ByteArray,
+    /** [Graft.Profile], if any */
+    val profiles: List<String>
+)
+
+/**
+ * All transplants under [root], a directory or jar file. Only classes
+ * referencing [Graft.Recipient] in their constant pool have their class
+ * annotations read; no class is parsed.
+ */
+fun discoverTransplants(root: File): List<Discovered> =
+    mapClassfiles(root, ::discover)
+
+/** as [discoverTransplants], parsing only the transplants */
+fun transplants(root: File): List<ClassNode> =
+    discoverTransplants(root).map { classNode(it.classfile) }
+
+/** [Discovered] if [classfile] is a transplant, reading no further than class annotations */
+fun discover(classfile: ByteArray): Discovered? {
+    if (!isTransplantCandidate(classfile))
+        return null
+
+    val header = RecipientHeader()
+    ClassReader(classfile).accept(header, ClassReader.SKIP_CODE or ClassReader.SKIP_DEBUG or ClassReader.SKIP_FRAMES)
+    return header.recipient?.let { Discovered(header.name, it, classfile, header.profiles) }
+}
+
+private val recipientDescriptor = type<Graft.Recipient>().descriptor
+private val profileDescriptor = type<Graft.Profile>().descriptor
+
+/** reads [Graft.Recipient] and [Graft.Profile], skipping fields and methods */
+private class RecipientHeader : ClassVisitor(ASM7) {
+    lateinit var name: String
+    var recipient: String? = null
+    val profiles = mutableListOf<String>()
+
+    override fun visit(
+        version: Int,
+        access: Int,
+        name: String,
+        signature: String?,
+        superName: String?,
+        interfaces: Array<out String>?
+    ) {
+        this.name = name
+    }
+
+    override fun visitAnnotation(descriptor: String, visible: Boolean): AnnotationVisitor? = when (descriptor) {
+        recipientDescriptor -> object : AnnotationVisitor(ASM7) {
+            override fun visit(name: String?, value: Any?) {
+                if (name == "value" && value is Type)
+                    recipient = value.internalName
+            }
+        }
+        profileDescriptor -> object : AnnotationVisitor(ASM7) {
+            override fun visitArray(name: String?): AnnotationVisitor = object : AnnotationVisitor(ASM7) {
+                override fun visit(name: String?, value: Any?) {
+                    profiles += value as String
+                }
+            }
+        }
+        else -> null
+    }
+}
@@ -0,0 +1,72 @@
+package net.onedaybeard.graftt.graft
+
+import net.onedaybeard.graftt.asm.asSequence
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.Type
+import org.objectweb.asm.commons.AnalyzerAdapter
+import org.objectweb.asm.tree.AbstractInsnNode
+import org.objectweb.asm.tree.FrameNode
+import org.objectweb.asm.tree.MethodNode
+
+/** converts all frames into [F_NEW] frames, as if read with `EXPAND_FRAMES` */
+internal fun expandFrames(owner: String, method: MethodNode) {
+    var locals = initialLocals(owner, method)
+    method.asSequence()
+        .mapNotNull { insn -> insn as? FrameNode }
+        .forEach { frame ->
+            val stack = when (frame.type) {
+                F_NEW, F_FULL -> frame.stack.orEmpty().also { locals = frame.local.orEmpty() }
+                F_SAME        -> listOf()
+                F_SAME1       -> frame.stack
+                F_APPEND      -> listOf<Any>().also { locals = locals + frame.local }
+                F_CHOP        -> listOf<Any>().also { locals = locals.dropLast(frame.local.size) }
+                else          -> throw Error("${frame.type}")
+            }
+
+            frame.type = F_NEW
+            frame.local = locals.toMutableList()
+            frame.stack = stack.toMutableList()
+        }
+}
+
+/**
+ * Types of locals and operand stack prior to [insn], one entry per slot.
+ * Frames of [method] must be expanded.
+ */
+internal fun analyzerAt(owner: String, method: MethodNode, insn: AbstractInsnNode): AnalyzerAdapter {
+    val adapter = AnalyzerAdapter(owner, method.access, method.name, method.desc, null)
+    method.asSequence()
+        .takeWhile { node -> node !== insn }
+        .forEach { node -> node.accept(adapter) }
+
+    return adapter
+}
+
+/** one entry per slot into frame entries; long and double occupy two slots, but a single frame entry */
+internal fun frameEntries(slots: List<Any>): List<Any> =
+    slots.filterIndexed { i, _ -> i == 0 || slots[i - 1] != LONG && slots[i - 1] != DOUBLE }
+
+/** frame entries into one entry per slot, as [frameEntries] in reverse */
+internal fun slotEntries(entries: List<Any>): List<Any> =
+    entries.flatMap { entry -> if (entry == LONG || entry == DOUBLE) listOf(entry, TOP) else listOf(entry) }
+
+/** verification type of [type] in stack map frames */
+internal fun frameType(type: Type): Any = when (type.sort) {
+    Type.BOOLEAN, Type.CHAR, Type.BYTE, Type.SHORT, Type.INT -> INTEGER
+    Type.FLOAT                                               -> FLOAT
+    Type.LONG                                                -> LONG
+    Type.DOUBLE                                              -> DOUBLE
+    else                                                     -> type.internalName
+}
+
+internal fun hasFrames(method: MethodNode) = method.asSequence().any { insn -> insn is FrameNode }
+
+private fun initialLocals(owner: String, method: MethodNode): List<Any> {
+    val receiver = when {
+        method.access and ACC_STATIC != 0 -> listOf()
+        method.name == "<init>"           -> listOf(UNINITIALIZED_THIS)
+        else                              -> listOf(owner)
+    }
+
+    return receiver + Type.getArgumentTypes(method.desc).map(::frameType)
+}
@@ -0,0 +1,184 @@
+package net.onedaybeard.graftt.graft
+
+import net.onedaybeard.graftt.Graft
+import net.onedaybeard.graftt.asm.asSequence
+import org.objectweb.asm.Label
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.Type
+import org.objectweb.asm.tree.*
+import org.objectweb.asm.tree.analysis.Analyzer
+import org.objectweb.asm.tree.analysis.Frame
+import org.objectweb.asm.tree.analysis.SourceInterpreter
+import org.objectweb.asm.tree.analysis.SourceValue
+
+/**
+ * Splices the body of [original] into [fused], in place of the single
+ * call to [original] - see [Graft.Fuse.inline]. Locals of [original] are
+ * moved past those of [fused], returns jump to the end of the spliced
+ * code and its try/catch blocks take precedence over those of [fused].
+ *
+ * Stack map frames of [fused] are expanded, and the spliced frames are
+ * prefixed with the locals of [fused] at the call site.
+ *
+ * Returns `false`, leaving [fused] untouched, if [original] can't be
+ * inlined safely.
+ */
+internal fun inlineOriginal(fused: MethodNode, original: MethodNode, owner: String): Boolean {
+    val call = fused.asSequence()
+        .mapNotNull { insn -> insn as? MethodInsnNode }
+        .filter { insn -> insn.owner == owner && insn.name == original.name && insn.desc == original.desc }
+        .singleOrNull()
+        ?: return false
+
+    val isStatic = original.access and ACC_STATIC != 0
+    if (!isInlinable(original) || isStatic != (call.opcode == INVOKESTATIC))
+        return false
+
+    val callSite = analyze(owner, fused)?.get(fused.instructions.indexOf(call)) ?: return false
+    val arguments = Type.getArgumentTypes(original.desc)
+    val receiver = if (isStatic) 0 else 1
+    if (callSite.stackSize != arguments.size + receiver)
+        return false
+    if (!isStatic && (!isReceiverThis(fused, callSite) || original.asSequence().any { it.isStoreTo(0) }))
+        return false
+    if (!returnsWithCleanStack(owner, original))
+        return false
+
+    val framed = hasFrames(fused) || hasFrames(original)
+    if (framed) {
+        expandFrames(owner, fused)
+        expandFrames(owner, original)
+    }
+    val callerLocals = if (framed) localsAt(owner, fused, call) ?: return false else listOf()
+
+    val offset = fused.maxLocals
+    fun shift(local: Int) = if (local == 0 && !isStatic) 0 else local + offset
+
+    val spliced = InsnList()
+
+    // arguments are moved into the locals of the original; the receiver is `this`
+    val slots = arguments.runningSlots(receiver)
+    arguments.indices.reversed().forEach { i ->
+        spliced.add(VarInsnNode(arguments[i].getOpcode(ISTORE), shift(slots[i])))
+    }
+    if (!isStatic)
+        spliced.add(InsnNode(POP))
+
+    val labels = original.asSequence()
+        .mapNotNull { insn -> insn as? LabelNode }
+        .associateWith { LabelNode() }
+
+    val end = LabelNode()
+    val last = original.asSequence().last { insn -> insn.opcode >= 0 }
+    var jumpsToEnd = false
+
+    // frame locals of the spliced code: locals of fused, followed by locals of original
+    val prefix = callerLocals.paddedTo(offset) + if (isStatic) listOf() else listOf(TOP)
+    fun relocate(frame: FrameNode): FrameNode {
+        val locals = prefix + frame.local.drop(receiver).map(labels::relabel)
+        val stack = frame.stack.map(labels::relabel)
+        return FrameNode(F_NEW, locals.size, locals.toTypedArray(), stack.size, stack.toTypedArray())
+    }
+
+    original.asSequence().forEach { insn ->
+        when {
+            insn is VarInsnNode    -> spliced.add(VarInsnNode(insn.opcode, shift(insn.`var`)))
+            insn is IincInsnNode   -> spliced.add(IincInsnNode(shift(insn.`var`), insn.incr))
+            insn is FrameNode      -> spliced.add(relocate(insn))
+            insn.opcode in IRETURN..RETURN && insn === last -> Unit
+            insn.opcode in IRETURN..RETURN -> {
+                spliced.add(JumpInsnNode(GOTO, end))
+                jumpsToEnd = true
+            }
+            else                   -> spliced.add(insn.clone(labels))
+        }
+    }
+
+    spliced.add(end)
+    if (framed && jumpsToEnd) {
+        val returnType = Type.getReturnType(original.desc)
+        val stack = if (returnType == Type.VOID_TYPE) arrayOf() else arrayOf(frameType(returnType))
+        spliced.add(FrameNode(F_NEW, callerLocals.size, callerLocals.toTypedArray(), stack.size, stack))
+    }
+
+    fused.instructions.insertBefore(call, spliced)
+    fused.instructions.remove(call)
+
+    val tryCatchBlocks = original.tryCatchBlocks.orEmpty().map { tcb ->
+        TryCatchBlockNode(labels[tcb.start], labels[tcb.end], labels[tcb.handler], tcb.type)
+    }
+    fused.tryCatchBlocks = (tryCatchBlocks + fused.tryCatchBlocks.orEmpty()).toMutableList()
+
+    original.localVariables.orEmpty()
+        .filterNot { lv -> lv.index == 0 && !isStatic }
+        .map { lv -> LocalVariableNode(lv.name, lv.desc, lv.signature, labels[lv.start], labels[lv.end], shift(lv.index)) }
+        .takeIf(List<LocalVariableNode>::isNotEmpty)
+        ?.let { lvs -> fused.localVariables = (fused.localVariables.orEmpty() + lvs).toMutableList() }
+
+    fused.maxLocals = offset + original.maxLocals
+    fused.maxStack = maxOf(fused.maxStack, original.maxStack)
+
+    return true
+}
+
+private fun isInlinable(method: MethodNode): Boolean {
+    val excluded = ACC_ABSTRACT or ACC_NATIVE or ACC_SYNCHRONIZED
+    return method.access and excluded == 0
+        && method.instructions.size() > 0
+        && method.asSequence().none { insn -> insn.opcode == JSR || insn.opcode == RET }
+        && method.asSequence().any { insn -> insn.opcode in IRETURN..RETURN }
+}
+
+/** receiver of the call is the unmodified `this` */
+private fun isReceiverThis(fused: MethodNode, callSite: Frame<SourceValue>): Boolean {
+    val source = callSite.getStack(0).insns.singleOrNull() as? VarInsnNode
+    return fused.access and ACC_STATIC == 0
+        && source?.opcode == ALOAD
+        && source.`var` == 0
+        && fused.asSequence().none { insn -> insn.isStoreTo(0) }
+}
+
+/** returns leave nothing but the return value on the stack, as the spliced code continues */
+private fun returnsWithCleanStack(owner: String, method: MethodNode): Boolean {
+    val frames = analyze(owner, method) ?: return false
+    return method.asSequence().withIndex()
+        .filter { (_, insn) -> insn.opcode in IRETURN..RETURN }
+        .all { (i, insn) -> frames[i]?.let { it.stackSize == if (insn.opcode == RETURN) 0 else 1 } ?: true }
+}
+
+private fun analyze(owner: String, method: MethodNode): Array<Frame<SourceValue>?>? =
+    runCatching { Analyzer(SourceInterpreter()).analyze(owner, method) }.getOrNull()
+
+/**
+ * Frame locals of [method] prior to [insn], as a [FrameNode] would declare
+ * them. Frames of [method] must be expanded.
+ */
+private fun localsAt(owner: String, method: MethodNode, insn: AbstractInsnNode): List<Any>? {
+    val locals = analyzerAt(owner, method, insn).locals ?: return null
+    if (locals.any { it is Label })
+        return null // uninitialized instance
+
+    return frameEntries(locals)
+}
+
+private fun AbstractInsnNode.isStoreTo(local: Int) =
+    (this is VarInsnNode && opcode in ISTORE..ASTORE && `var` == local)
+        || (this is IincInsnNode && `var` == local)
+
+/** local variable index of each argument */
+private fun Array<Type>.runningSlots(first: Int): List<Int> {
+    var slot = first
+    return map { type -> slot.also { slot += type.size } }
+}
+
+/** frame entries padded with [TOP] until spanning [slots] local variable slots */
+private fun List<Any>.paddedTo(slots: Int): List<Any> {
+    val used = sumBy { local -> if (local == LONG || local == DOUBLE) 2 else 1 }
+    return this + List(slots - used) { TOP }
+}
+
+/** frame entries referring to the label of an uninitialized instance follow the label */
+private fun Map<LabelNode, LabelNode>.relabel(entry: Any?): Any? = when (entry) {
+    is LabelNode -> get(entry) ?: entry
+    else         -> entry
+}
@@ -0,0 +1,87 @@
+package net.onedaybeard.graftt.graft
+
+import org.objectweb.asm.commons.CodeSizeEvaluator
+import org.objectweb.asm.commons.Remapper
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.MethodNode
+
+/** HotSpot's default inlining thresholds, in bytes of bytecode */
+enum class InliningThreshold(val size: Int) {
+    /** `-XX:MaxInlineSize`: larger methods are only inlined when hot */
+    MAX_INLINE_SIZE(35),
+    /** `-XX:FreqInlineSize`: larger methods are never inlined */
+    FREQ_INLINE_SIZE(325);
+
+    /** as passed in configuration, e.g. `max-inline-size` */
+    val key: String
+        get() = name.toLowerCase().replace('_', '-')
+
+    companion object {
+        fun parse(key: String): InliningThreshold = values().find { it.key == key }
+            ?: throw IllegalArgumentException("threshold must be one of ${values().map(InliningThreshold::key)}: $key")
+    }
+}
+
+/** bytecode size of a method grafted from a transplant */
+data class GraftedMethod(
+    val name: String,
+    val desc: String,
+    /** code size of the recipient method prior to grafting; `null` for added methods */
+    val sizeBefore: Int?,
+    val size: Int,
+    val maxStack: Int,
+    val maxLocals: Int
+) {
+    /** fused method no longer fits [threshold], while the original did */
+    fun crosses(threshold: InliningThreshold): Boolean =
+        sizeBefore != null && sizeBefore <= threshold.size && size > threshold.size
+
+    fun exceeds(threshold: InliningThreshold): Boolean = size > threshold.size
+
+    override fun toString(): String {
+        val exceeded = InliningThreshold.values().lastOrNull(::exceeds)?.let { " > ${it.key}" } ?: ""
+        return "$name$desc: ${sizeBefore ?: "-"} -> $size bytes, stack=$maxStack, locals=$maxLocals$exceeded"
+    }
+}
+
+/** sizes of all methods grafted onto [recipient], against [InliningThreshold]s */
+class InliningReport(
+    val recipient: String,
+    val methods: List<GraftedMethod>
+) {
+    /** fused methods which no longer fit [threshold] */
+    fun crossing(threshold: InliningThreshold): List<GraftedMethod> = methods.filter { it.crosses(threshold) }
+
+    override fun toString() = "$recipient: ${methods.joinToString()}"
+}
+
+/**
+ * Reports the size of each method grafted from [donors] onto [grafted].
+ * [sizesBefore] holds the code sizes of the recipient prior to grafting,
+ * as returned by [codeSizes]. [remapper] substitutes transplants with
+ * their recipients, as when transplanting.
+ */
+fun inliningReport(
+    sizesBefore: Map<String, Int>,
+    grafted: ClassNode,
+    donors: List<ClassNode>,
+    remapper: Remapper
+): InliningReport {
+    val methods = grafted.methods.associateBy { mn -> mn.name + mn.desc }
+    val transplanted = donors
+        .flatMap(ClassNode::graftableMethods)
+        .mapNotNull { mn -> methods[mn.name + remapper.mapMethodDesc(mn.desc)] }
+        .distinct()
+        .map { mn -> GraftedMethod(
+            mn.name, mn.desc, sizesBefore[mn.name + mn.desc], codeSize(mn), mn.maxStack, mn.maxLocals) }
+
+    return InliningReport(grafted.name, transplanted)
+}
+
+/** code size of all methods in [cn], keyed by name and descriptor */
+fun codeSizes(cn: ClassNode): Map<String, Int> =
+    cn.methods.associate { mn -> mn.name + mn.desc to codeSize(mn) }
+
+/** bytecode size of [method]; an upper bound, as some instructions have shorter encodings */
+fun codeSize(method: MethodNode): Int =
+    CodeSizeEvaluator(null).also(method.instructions::accept).maxSize
@@ -0,0 +1,100 @@
+package net.onedaybeard.graftt.graft
+
+import com.github.michaelbull.result.*
+import net.onedaybeard.graftt.Graft
+import net.onedaybeard.graftt.Msg
+import net.onedaybeard.graftt.ZipArchive
+import net.onedaybeard.graftt.ZipWriter
+import net.onedaybeard.graftt.resultOf
+import org.objectweb.asm.Type
+import org.objectweb.asm.tree.ClassNode
+import java.io.File
+import java.io.FileNotFoundException
+import java.util.concurrent.ForkJoinPool
+
+/**
+ * Grafts [donors] onto their [Graft.Recipient]s in the [input] jar,
+ * writing the patched jar to [output]. Recipients are inflated and
+ * grafted as class files, see [transplantAllClassfiles]; all other
+ * entries are copied byte for byte, without recompressing them.
+ *
+ * [input] is read through its central directory, and closed before
+ * returning: besides the grafted recipients, memory only grows with
+ * the number of entries, not with their size. Zip64 archives are not
+ * supported.
+ *
+ * Signed jars fail once any recipient is grafted, as grafting would
+ * invalidate the signature.
+ *
+ * Returns the grafted recipients; [output] is not written on failure.
+ */
+@JvmOverloads
+fun transplantJar(
+    input: File,
+    output: File,
+    donors: Collection<ClassNode>,
+    verification: Verification = Verification.FULL,
+    pool: ForkJoinPool = ForkJoinPool.commonPool(),
+    listener: PhaseListener = PhaseListener.NONE
+): Result<List<Type>, Msg> {
+    if (input.canonicalFile == output.canonicalFile)
+        return Err(Msg.Error(IllegalArgumentException("input and output must differ: $input")))
+
+    val archive = when (val opened = resultOf { ZipArchive.open(input) }) {
+        is Ok  -> opened.value
+        is Err -> return opened
+    }
+
+    // closed before returning, letting callers replace the input
+    return archive.use { transplantJar(archive, input, output, donors, verification, pool, listener) }
+}
+
+private fun transplantJar(
+    archive: ZipArchive,
+    input: File,
+    output: File,
+    donors: Collection<ClassNode>,
+    verification: Verification,
+    pool: ForkJoinPool,
+    listener: PhaseListener
+): Result<List<Type>, Msg> {
+    val entries = archive.entries.associateBy(ZipArchive.Entry::name)
+    fun loadRecipient(type: Type) = resultOf {
+        val entry = entries["${type.internalName}.class"]
+            ?: throw FileNotFoundException("$input!/${type.internalName}.class")
+
+        entry.read()
+    }
+
+    val batch = transplantAllClassfiles(donors, ::loadRecipient, verification, pool, listener)
+    batch.errors.firstOrNull()?.let { return Err(it) }
+
+    val grafted = batch.results.entries
+        .associate { (type, classfile) -> "${type.internalName}.class" to classfile.unwrap() }
+
+    val signatures = entries.keys.filter(::isSignatureFile)
+    if (grafted.isNotEmpty() && signatures.isNotEmpty())
+        return Err(Msg.Error(IllegalStateException("grafting invalidates signed jar: $input, see $signatures")))
+
+    return resultOf { write(archive, output, grafted) }
+        .onFailure { output.delete() }
+        .map { batch.results.keys.toList() }
+}
+
+/** signature file of a signed jar, e.g. `META-INF/FOO.SF` */
+private fun isSignatureFile(name: String): Boolean =
+    name.startsWith("META-INF/") && name.indexOf('/', 9) == -1 && name.endsWith(".SF", ignoreCase = true)
+
+/** copies all entries of [archive], replacing [grafted] entries */
+private fun write(archive: ZipArchive, output: File, grafted: Map<String, ByteArray>) {
+    output.outputStream().buffered().use { out ->
+        ZipWriter(out).use { zip ->
+            archive.entries.forEach { entry ->
+                when (val classfile = grafted[entry.name]) {
+                    null -> zip.copy(entry)
+                    else -> zip.replace(entry, classfile)
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.onedaybeard.graftt.graft
+
+import net.onedaybeard.graftt.asm.signatureEquals
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.FieldNode
+import org.objectweb.asm.tree.MethodNode
+
+/**
+ * Fields and methods of [recipient], keyed by name and descriptor.
+ * Built once per recipient by [Surgery]; all changes to the members
+ * of [recipient] during surgery go through the index, keeping lookups
+ * constant-time for recipients with thousands of members.
+ */
+internal class MemberIndex(val recipient: ClassNode) {
+    private val methods = HashMap<String, MethodNode>(recipient.methods.size * 2)
+    private val fields = HashMap<String, MutableList<FieldNode>>(recipient.fields.size * 2)
+
+    init {
+        recipient.methods.forEach { mn -> methods[key(mn.name, mn.desc)] = mn }
+        recipient.fields.forEach { fn -> fields.getOrPut(fn.name, ::mutableListOf) += fn }
+    }
+
+    /** recipient method matching name, descriptor and signature of [method] */
+    fun find(method: MethodNode): MethodNode? =
+        methods[key(method.name, method.desc)]?.takeIf(method::signatureEquals)
+
+    /** recipient field matching name, descriptor and signature of [field] */
+    fun find(field: FieldNode): FieldNode? =
+        fields[field.name]?.find(field::signatureEquals)
+
+    fun hasMethod(name: String, desc: String) = key(name, desc) in methods
+
+    fun add(method: MethodNode) {
+        recipient.methods.add(method)
+        methods[key(method.name, method.desc)] = method
+    }
+
+    fun remove(method: MethodNode) {
+        recipient.methods.remove(method)
+        methods.remove(key(method.name, method.desc), method)
+    }
+
+    fun rename(method: MethodNode, name: String) {
+        methods.remove(key(method.name, method.desc), method)
+        method.name = name
+        methods[key(name, method.desc)] = method
+    }
+
+    /** adds [field], replacing any fields with the same name */
+    fun replace(field: FieldNode) {
+        fields.remove(field.name)?.let { replaced -> recipient.fields.removeAll(replaced) }
+        recipient.fields.add(field)
+        fields[field.name] = mutableListOf(field)
+    }
+
+    private fun key(name: String, desc: String) = name + desc
+}
@@ -7,7 +7,7 @@ import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.Type
 import org.objectweb.asm.commons.Remapper
 import org.objectweb.asm.tree.*
-import kotlin.reflect.KMutableProperty
+import kotlin.reflect.KMutableProperty0
 
 /**
  * Remaps graftable bytecode from [donor] to [recipient]. The
@@ -23,19 +23,54 @@ import kotlin.reflect.KMutableProperty
  *
  * As the [recipient] is known, [donor] is not checked for
  * [Graft.Recipient].
+ *
+ * Time spent remapping, grafting and verifying is reported to [listener].
  */
+@JvmOverloads
 fun transplant(
     donor: ClassNode,
     recipient: ClassNode,
-    remapper: Remapper
+    remapper: Remapper,
+    listener: PhaseListener = PhaseListener.NONE
+): Result<ClassNode, Msg> = transplant(listOf(donor), recipient, remapper, listener)
+
+/**
+ * Grafts all [donors] onto [recipient] in a single pass, verifying the
+ * result once according to [verification]. Donors are applied in order
+ * of their names; fusing the same method from multiple donors chains
+ * them, with each donor calling into the previously applied one.
+ *
+ * As the [recipient] is known, [donors] are not checked for
+ * [Graft.Recipient].
+ */
+@JvmOverloads
+fun transplant(
+    donors: List<ClassNode>,
+    recipient: ClassNode,
+    remapper: Remapper,
+    listener: PhaseListener = PhaseListener.NONE,
+    verification: Verification = Verification.FULL
 ): Result<ClassNode, Msg> {
+    val untouched = recipient.methods.toSet()
+    return surgery(donors, recipient, remapper, listener)
+        .andThen { cn -> verify(cn, verification, listener, untouched::contains) }
+}
 
-    if (donor.superName != "java/lang/Object")
-        return Err(Msg.TransplantMustNotExtendClass(donor.name))
+/** grafts [donors] onto [recipient], leaving verification to the caller */
+internal fun surgery(
+    donors: List<ClassNode>,
+    recipient: ClassNode,
+    remapper: Remapper,
+    listener: PhaseListener
+): Result<ClassNode, Msg> {
 
-    return Ok(donor)
-        .andThen(Surgery(recipient, remapper)::transplant)
-        .andThen(::verify)
+    donors.find { it.superName != "java/lang/Object" }
+        ?.let { return Err(Msg.TransplantMustNotExtendClass(it.name)) }
+
+    val surgery = Surgery(recipient, remapper, listener)
+    return donors
+        .sortedBy(ClassNode::name)
+        .fold(recipient) { _, donor -> surgery.transplant(donor) }
 }
 
 /**
@@ -58,32 +93,32 @@ fun transplant(
 
 /**
  * Copies all elements from this list into [destination]. The destination list
- * is instantiated if it is `null`.
+ * is instantiated if it is `null`. Bound property references are invoked
+ * directly; unlike `getter.call()`, this does not require kotlin-reflect.
  */
-private fun <T> Iterable<T>.copyIntoNullable(destination: KMutableProperty<MutableList<T>?>) {
-    if (destination.getter.call() == null)
-        destination.setter.call(mutableListOf<T>())
-
-    destination.getter.call()!!.addAll(this)
+private fun <T> Iterable<T>.copyIntoNullable(destination: KMutableProperty0<MutableList<T>?>) {
+    val list = destination.get() ?: mutableListOf<T>().also(destination::set)
+    list.addAll(this)
 }
 
-private fun <T : Transplant<*>> ClassNode.graftAnnotations(transplant: T): Result<T, Msg> {
-    when (val t = transplant.takeIf { it.findRecipientNode(this) != null }) {
+/** [recipientNode] is the member of the recipient matching [transplant], if any */
+private fun <T : Transplant<*>> graftAnnotations(transplant: T, recipientNode: Any?): Result<T, Msg> {
+    when (val t = transplant.takeIf { recipientNode != null }) {
         is Transplant.Class  -> {
             // NB: Transplant.Field and Transplant.Method copies from the original,
             // but we can't do this here as we're mutating the recipient directly
-            val original = t.findRecipientNode(this)!!
+            val original = recipientNode as ClassNode
             t.node.invisibleAnnotations?.removeIf(AnnotationNode::isGraftAnnotation)
             t.node.invisibleAnnotations?.copyIntoNullable(original::invisibleAnnotations)
             t.node.visibleAnnotations?.copyIntoNullable(original::visibleAnnotations)
         }
         is Transplant.Field  -> {
-            val original = t.findRecipientNode(this)!!
+            val original = recipientNode as FieldNode
             original.invisibleAnnotations?.copyIntoNullable(t.node::invisibleAnnotations)
             original.visibleAnnotations?.copyIntoNullable(t.node::visibleAnnotations)
         }
         is Transplant.Method -> {
-            val original = t.findRecipientNode(this)!!
+            val original = recipientNode as MethodNode
             original.invisibleAnnotations?.copyIntoNullable(t.node::invisibleAnnotations)
             original.visibleAnnotations?.copyIntoNullable(t.node::visibleAnnotations)
         }
@@ -94,9 +129,9 @@ private fun <T : Transplant<*>> ClassNode.graftAnnotations(transplant: T): Resul
     return Ok(transplant)
 }
 
-private fun <T : Transplant<*>> ClassNode.removeAnnotations(transplant: T): Result<T, Msg> {
+private fun <T : Transplant<*>> removeAnnotations(transplant: T, recipientNode: Any?): Result<T, Msg> {
     val toRemove = transplant.annotationsToRemove()
-    when (val n = transplant.findRecipientNode(this)) {
+    when (val n = recipientNode) {
         is ClassNode  -> n.annotations()
         is MethodNode -> n.annotations()
         is FieldNode  -> n.annotations()
@@ -106,7 +141,7 @@ private fun <T : Transplant<*>> ClassNode.removeAnnotations(transplant: T): Resu
     return Ok(transplant)
 }
 
-private fun ClassNode.validateField(transplant: Transplant.Field): Result<Transplant.Field, Msg> {
+private fun MemberIndex.validateField(transplant: Transplant.Field): Result<Transplant.Field, Msg> {
     val field = transplant.node
     val doFuse = field.hasAnnotation(type<Graft.Fuse>())
     val canFuse = transplant.findRecipientNode(this) != null
@@ -121,9 +156,14 @@ private fun ClassNode.validateField(transplant: Transplant.Field): Result<Transp
 /** ensure annotations on [transplant] don't clash with annotations on recipient  */
 fun <T : Transplant<*>> ClassNode.validateAnnotations(
     transplant: T
+): Result<T, Msg> = validateAnnotations(transplant, transplant.findRecipientNode(this))
+
+private fun <T : Transplant<*>> validateAnnotations(
+    transplant: T,
+    recipientNode: Any?
 ): Result<T, Msg> {
     val annotationsToRemove = transplant.annotationsToRemove()
-    val recipientNode = transplant.findRecipientNode(this)
+    recipientNode
         ?: return if (annotationsToRemove.none())
             Ok(transplant)
         else
@@ -159,12 +199,12 @@ fun <T : Transplant<*>> ClassNode.validateAnnotations(
     return Ok(transplant)
 }
 
-private fun ClassNode.updateMethod(
+private fun MemberIndex.updateMethod(
     transplant: Transplant.Method
 ): Result<Transplant.Method, Msg> {
     val method = transplant.node
-    val original = methods.find(method::signatureEquals)
-        ?.apply { name += "\$original" }
+    val original = find(method)
+        ?.also { original -> rename(original, originalName(original)) }
 
     val doFuse = method.hasAnnotation(type<Graft.Fuse>())
     val canFuse = original != null
@@ -177,19 +217,47 @@ private fun ClassNode.updateMethod(
         else -> {
             val replacesOriginal = method.asSequence()
                 .mapNotNull { insn -> insn as? MethodInsnNode }
-                .filter { insn -> insn.owner == name }
+                .filter { insn -> insn.owner == recipient.name }
                 .filter(method::signatureEquals)
                 .onEach { insn -> insn.name = original!!.name }
                 .count() == 0
 
-            if (replacesOriginal)
-                methods.remove(original)
+            val inlinesOriginal = !replacesOriginal
+                && transplant.inline
+                && inlineOriginal(method, original!!, recipient.name)
+
+            if (replacesOriginal || inlinesOriginal)
+                remove(original!!)
 
             Ok(transplant)
         }
     }
 }
 
+/** moves the cold paths of [Graft.Outline]d methods into methods of their own */
+private fun MemberIndex.outline(
+    transplant: Transplant.Method
+): Result<Transplant.Method, Msg> {
+    if (transplant.outline && recipient.access and ACC_INTERFACE == 0)
+        outlineColdPaths(recipient.name, transplant.node) { name, desc -> !hasMethod(name, desc) }
+            .forEach(::add)
+
+    return Ok(transplant)
+}
+
+/**
+ * Name of a fused method's original: `name$original`. When stacking
+ * transplants, the previously fused method becomes `name$original$1`,
+ * `name$original$2` and so on.
+ */
+private fun MemberIndex.originalName(method: MethodNode): String {
+    fun isFree(name: String) = !hasMethod(name, method.desc)
+
+    return generateSequence(0, Int::inc)
+        .map { i -> if (i == 0) "${method.name}\$original" else "${method.name}\$original\$$i" }
+        .first(::isFree)
+}
+
 /** all methods except mocked, constructor and static initializer */
 fun ClassNode.graftableMethods() = methods
     .filterNot { it.hasAnnotation(type<Graft.Mock>()) }
@@ -202,6 +270,16 @@ fun ClassNode.graftableFields() = fields
 val ClassNode.isTransplant: Boolean
     get() = readRecipientType(this) is Ok
 
+private val recipientDescriptor = type<Graft.Recipient>().descriptor.toByteArray()
+
+/**
+ * Inspects the constant pool of [classfile] without parsing the class. A
+ * `false` result guarantees that the class is not a transplant, while `true`
+ * only means that [Graft.Recipient] is referenced somewhere in the class.
+ */
+fun isTransplantCandidate(classfile: ByteArray): Boolean =
+    constantPoolContains(classfile, recipientDescriptor)
+
 /** returns true for any [Graft] annotations */
 fun AnnotationNode.isGraftAnnotation() =
     desc.startsWith("L${type<Graft>().internalName}\$")
@@ -217,19 +295,23 @@ fun readRecipientType(donor: ClassNode): Result<Type, Msg> {
 fun readRecipientName(donor: ClassNode): Result<String, Msg> =
     readRecipientType(donor).map { it.internalName }
 
-/** rewrites this [ClassNode] according to [method] transplant */
-private fun ClassNode.graft(method: Transplant.Method): Result<ClassNode, Msg> {
+/** [Graft.Profile] of [donor]; empty when the transplant applies to all profiles */
+fun readProfiles(donor: ClassNode): List<String> =
+    (donor.annotations().findAnnotation<Graft.Profile>() andThen readField<List<String>>("value"))
+        .get() ?: listOf()
+
+/** rewrites the recipient according to [method] transplant */
+private fun MemberIndex.graft(method: Transplant.Method): Result<ClassNode, Msg> {
     method.annotations().removeAll(AnnotationNode::isGraftAnnotation)
-    methods.add(method.node)
-    return Ok(this)
+    add(method.node)
+    return Ok(recipient)
 }
 
-/** rewrites this [ClassNode] according to [field] transplant */
-private fun ClassNode.graft(field: Transplant.Field): Result<ClassNode, Msg> {
+/** rewrites the recipient according to [field] transplant */
+private fun MemberIndex.graft(field: Transplant.Field): Result<ClassNode, Msg> {
     field.annotations().removeAll(AnnotationNode::isGraftAnnotation)
-    fields.removeIf { it.name == field.node.name }
-    fields.add(field.node)
-    return Ok(this)
+    replace(field.node)
+    return Ok(recipient)
 }
 
 /** valid [opcodes]: [GETSTATIC], [PUTSTATIC], [GETFIELD], [PUTFIELD] */
@@ -261,10 +343,19 @@ private val ctorOrStaticInit: (MethodNode) -> Boolean =
           { it.name == "<init>" })
 
 /** Convenience class for transplanting to [recipient] */
-private class Surgery(val recipient: ClassNode, val remapper: Remapper) {
-
-    fun transplant(donor: ClassNode) = Ok(donor)
-        .andThen(::remapDonor)
+private class Surgery(
+    val recipient: ClassNode,
+    val remapper: Remapper,
+    val listener: PhaseListener
+) {
+    /** kept up to date with all members added, renamed and removed */
+    val members = MemberIndex(recipient)
+
+    fun transplant(donor: ClassNode) = listener
+        .timed(Phase.REMAP) { remapDonor(donor) }
+        .andThen { remapped -> listener.timed(Phase.SURGERY) { graft(remapped) } }
+
+    fun graft(donor: ClassNode) = Ok(donor)
         .andThen(::classAnnotations)
         .andThen(::interfaces)
         .andThen(::fields)
@@ -297,9 +388,9 @@ private class Surgery(val recipient: ClassNode, val remapper: Remapper) {
             .map(ClassNode::graftableFields)
             .mapAll(verifyFieldNotInitialized(donor))
             .mapAll { f -> Ok(Transplant.Field(donor.name, f.copy())) }
-            .mapAll(recipient::validateField)
+            .mapAll(members::validateField)
             .mapAll(::validateAndFuseAnnotations)
-            .mapAll(recipient::graft)
+            .mapAll(members::graft)
             .map { donor }
     }
 
@@ -308,8 +399,9 @@ private class Surgery(val recipient: ClassNode, val remapper: Remapper) {
             .map(ClassNode::graftableMethods)
             .mapAll { fn -> ok(Transplant.Method(donor.name, fn)) }
             .mapAll(::validateAndFuseAnnotations)
-            .mapAll(recipient::updateMethod)
-            .mapAll(recipient::graft)
+            .mapAll(members::updateMethod)
+            .mapAll(members::outline)
+            .mapAll(members::graft)
             .map { donor }
     }
 
@@ -317,9 +409,10 @@ private class Surgery(val recipient: ClassNode, val remapper: Remapper) {
         .also { cn -> cn.name = donor.name }) // for errors to propagate correctly
 
     fun <T : Transplant<*>> validateAndFuseAnnotations(transplant: T): Result<T, Msg> {
+        val recipientNode = transplant.findRecipientNode(members)
         return ok(transplant)
-            .andThen(recipient::validateAnnotations)
-            .andThen(recipient::removeAnnotations)
-            .andThen(recipient::graftAnnotations)
+            .andThen { t -> validateAnnotations(t, recipientNode) }
+            .andThen { t -> removeAnnotations(t, recipientNode) }
+            .andThen { t -> graftAnnotations(t, recipientNode) }
     }
 }
\ No newline at end of file
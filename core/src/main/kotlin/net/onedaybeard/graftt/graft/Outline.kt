@@ -0,0 +1,255 @@
+package net.onedaybeard.graftt.graft
+
+import net.onedaybeard.graftt.Graft
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.Type
+import org.objectweb.asm.commons.CodeSizeEvaluator
+import org.objectweb.asm.tree.*
+
+/**
+ * Moves cold regions of [method] into private static synthetic methods
+ * of [owner], named `name$cold`, `name$cold$1` and so on - see
+ * [Graft.Outline]. Each region is replaced by a call, passing the operand
+ * stack and the locals read by the region as arguments. Regions ending
+ * in `return` or `throw` return from [method] with the result of the
+ * call; other regions continue with the code following them.
+ *
+ * Regions are only outlined when larger than the call replacing them.
+ * [isFree] tells whether a method name and descriptor is available on
+ * [owner]. Returns the outlined methods, to be added to [owner].
+ */
+internal fun outlineColdPaths(
+    owner: String,
+    method: MethodNode,
+    isFree: (name: String, desc: String) -> Boolean
+): List<MethodNode> {
+    if (method.instructions.size() == 0)
+        return listOf()
+
+    expandFrames(owner, method)
+
+    val taken = mutableSetOf<String>()
+    fun name(desc: String) = generateSequence(0, Int::inc)
+        .map { i -> if (i == 0) "${method.name}\$cold" else "${method.name}\$cold\$$i" }
+        .first { name -> name !in taken && isFree(name, desc) }
+        .also { name -> taken += name }
+
+    return coldRegions(owner, method)
+        .mapNotNull { region -> outline(owner, method, region, ::name) }
+}
+
+/**
+ * Straight-line run of instructions, only entered at its first instruction.
+ * [exit] is the label the region continues at, or `null` if the region
+ * ends in `return` or `throw`.
+ */
+private class Region(val insns: List<AbstractInsnNode>, val exit: LabelNode?) {
+    val throws: Boolean
+        get() = exit == null && insns.last().opcode == ATHROW
+}
+
+/** catch blocks, blocks ending in `throw` and blocks guarded by a boolean field of [owner] */
+private fun coldRegions(owner: String, method: MethodNode): List<Region> {
+    val insns = method.instructions.toArray()
+    val index = insns.withIndex().associate { (i, insn) -> insn to i }
+
+    val tryCatchBlocks = method.tryCatchBlocks.orEmpty()
+    val handlers = tryCatchBlocks.map(TryCatchBlockNode::handler).toSet()
+    val targets = insns.flatMap(::jumpTargets) +
+        tryCatchBlocks.flatMap { tcb -> listOf(tcb.start, tcb.end, tcb.handler) }
+    val controlLabels = targets.toSet()
+
+    fun regionAt(entry: Int): Region? {
+        var i = entry
+        while (i < insns.size && insns[i].opcode < 0) {
+            if (insns[i] in controlLabels)
+                return null // the block starts at the label
+            i++
+        }
+
+        val first = i
+        while (i < insns.size) {
+            val insn = insns[i]
+            when {
+                insn in controlLabels        -> return Region(insns.slice(first until i), insn as LabelNode)
+                insn.opcode == GOTO          -> return Region(insns.slice(first until i), (insn as JumpInsnNode).label)
+                insn.opcode == ATHROW        -> return Region(insns.slice(first..i), null)
+                insn.opcode in IRETURN..RETURN -> return Region(insns.slice(first..i), null)
+                !insn.isOutlinable()         -> return null
+            }
+            i++
+        }
+
+        return null
+    }
+
+    fun isCovered(region: Region): Boolean {
+        val first = index.getValue(region.insns.first())
+        val last = index.getValue(region.insns.last())
+        return tryCatchBlocks.any { tcb -> index.getValue(tcb.start) <= last && index.getValue(tcb.end) > first }
+    }
+
+    return insns.withIndex()
+        .mapNotNull { (i, insn) ->
+            when {
+                insn in handlers          -> regionAt(i + 1)
+                insn.isFlagGuard(owner)   -> regionAt(i + 1)?.takeIf { it.exit == null || it.exit === (insn as JumpInsnNode).label }
+                insn.isConditionalJump()  -> regionAt(i + 1)?.takeIf(Region::throws)
+                insn in controlLabels     -> regionAt(i + 1)?.takeIf(Region::throws)
+                else                      -> null
+            }
+        }
+        .filter { region -> region.insns.any { insn -> insn.opcode >= 0 } }
+        .filterNot(::isCovered)
+}
+
+private fun outline(
+    owner: String,
+    method: MethodNode,
+    region: Region,
+    name: (String) -> String
+): MethodNode? {
+    val analyzer = analyzerAt(owner, method, region.insns.first())
+    val locals = analyzer.locals ?: return null // unreachable
+    val stack = frameEntries(analyzer.stack ?: return null)
+    val stackTypes = stack.map { entry -> argumentType(entry) ?: return null }
+
+    // locals read by the region before writing them become arguments
+    val reads = sortedSetOf<Int>()
+    val writes = mutableSetOf<Int>()
+    region.insns.forEach { insn ->
+        when {
+            insn is VarInsnNode && insn.opcode in ILOAD..ALOAD -> if (insn.`var` !in writes) reads += insn.`var`
+            insn is VarInsnNode -> writes += insn.`var`
+            insn is IincInsnNode -> { if (insn.`var` !in writes) reads += insn.`var`; writes += insn.`var` }
+        }
+    }
+    val inputs = reads.toList()
+    val inputTypes = inputs.map { slot -> argumentType(locals.getOrNull(slot)) ?: return null }
+
+    // locals assigned by the region must not be read after it
+    if (region.exit != null) {
+        val frame = frameAt(region.exit) ?: return null
+        val live = slotEntries(frame.local.orEmpty())
+        if (frame.stack.orEmpty().isNotEmpty() || writes.any { slot -> live.getOrNull(slot).let { it != null && it != TOP } })
+            return null
+    }
+
+    val returnType = if (region.exit == null) Type.getReturnType(method.desc) else Type.VOID_TYPE
+    val desc = Type.getMethodDescriptor(returnType, *(stackTypes + inputTypes).toTypedArray())
+
+    val invoke = MethodInsnNode(INVOKESTATIC, owner, "", desc, false)
+    val call = InsnList().apply {
+        inputs.forEachIndexed { i, slot -> add(VarInsnNode(inputTypes[i].getOpcode(ILOAD), slot)) }
+        add(invoke)
+        if (region.exit == null)
+            add(InsnNode(returnType.getOpcode(IRETURN)))
+    }
+
+    if (sizeOf(region.insns) <= sizeOf(call.toArray().asList()))
+        return null
+
+    invoke.name = name(desc)
+    val outlined = outlinedMethod(invoke.name, desc, region, stackTypes, inputs.zip(inputTypes))
+        ?: return null
+    outlined.maxStack = method.maxStack
+
+    method.instructions.insertBefore(region.insns.first(), call)
+    region.insns.forEach(method.instructions::remove)
+
+    val removed = region.insns.filterIsInstance<LabelNode>().toSet()
+    method.localVariables?.removeIf { lv -> lv.start in removed || lv.end in removed }
+    method.maxStack = maxOf(method.maxStack, stack.sumBy(::slotSize) + inputTypes.sumBy(Type::getSize))
+
+    return outlined
+}
+
+/** [region] as a static method; [stackTypes] and [inputs] are passed as arguments, in order */
+private fun outlinedMethod(
+    name: String,
+    desc: String,
+    region: Region,
+    stackTypes: List<Type>,
+    inputs: List<Pair<Int, Type>>
+): MethodNode? {
+    val outlined = MethodNode(ACC_PRIVATE or ACC_STATIC or ACC_SYNTHETIC, name, desc, null, null)
+
+    var next = 0
+    val stackSlots = stackTypes.map { type -> next.also { next += type.size } }
+    val slots = inputs.associate { (slot, type) -> slot to next.also { next += type.size } }.toMutableMap()
+    val wide = inputs.filter { (_, type) -> type.size == 2 }.map { (slot, _) -> slot }.toSet()
+
+    // locals only assigned within the region; two slots each, as the type may vary
+    fun slot(local: Int) = slots.getOrPut(local) { next.also { next += 2 } }
+
+    val labels = region.insns.filterIsInstance<LabelNode>().associateWith { LabelNode() }
+    val insns = outlined.instructions
+
+    stackTypes.forEachIndexed { i, type -> insns.add(VarInsnNode(type.getOpcode(ILOAD), stackSlots[i])) }
+    region.insns.forEach { insn ->
+        when (insn) {
+            is VarInsnNode    -> {
+                if (insn.opcode in LSTORE..DSTORE && insn.`var` in slots && insn.`var` !in wide)
+                    return null // would overwrite the next argument
+                insns.add(VarInsnNode(insn.opcode, slot(insn.`var`)))
+            }
+            is IincInsnNode   -> insns.add(IincInsnNode(slot(insn.`var`), insn.incr))
+            is LineNumberNode -> if (insn.start in labels) insns.add(insn.clone(labels))
+            else              -> insns.add(insn.clone(labels))
+        }
+    }
+    if (region.exit != null)
+        insns.add(InsnNode(RETURN))
+
+    outlined.maxLocals = next
+    return outlined
+}
+
+/** argument type for a frame entry; `null` for uninitialized values and `null` constants */
+private fun argumentType(entry: Any?): Type? = when (entry) {
+    INTEGER   -> Type.INT_TYPE
+    FLOAT     -> Type.FLOAT_TYPE
+    LONG      -> Type.LONG_TYPE
+    DOUBLE    -> Type.DOUBLE_TYPE
+    is String -> Type.getObjectType(entry)
+    else      -> null
+}
+
+private fun slotSize(entry: Any) = if (entry == LONG || entry == DOUBLE) 2 else 1
+
+/** frame declared at [label], if any */
+private fun frameAt(label: LabelNode): FrameNode? = generateSequence(label.next) { it.next }
+    .first { insn -> insn !is LabelNode && insn !is LineNumberNode }
+    as? FrameNode
+
+private fun sizeOf(insns: List<AbstractInsnNode>): Int =
+    CodeSizeEvaluator(null).also { cse -> insns.forEach { insn -> insn.accept(cse) } }.maxSize
+
+private fun jumpTargets(insn: AbstractInsnNode): List<LabelNode> = when (insn) {
+    is JumpInsnNode         -> listOf(insn.label)
+    is TableSwitchInsnNode  -> insn.labels + insn.dflt
+    is LookupSwitchInsnNode -> insn.labels + insn.dflt
+    else                    -> listOf()
+}
+
+private fun AbstractInsnNode.isConditionalJump() =
+    this is JumpInsnNode && opcode != GOTO && opcode != JSR
+
+/** `if (flag)`, where `flag` is a boolean field of [owner] */
+private fun AbstractInsnNode.isFlagGuard(owner: String): Boolean {
+    val flag = generateSequence(previous) { it.previous }.firstOrNull { insn -> insn.opcode >= 0 }
+    return opcode == IFEQ
+        && flag is FieldInsnNode
+        && (flag.opcode == GETSTATIC || flag.opcode == GETFIELD)
+        && flag.owner == owner
+        && flag.desc == "Z"
+}
+
+/** straight-line instructions valid in a static method */
+private fun AbstractInsnNode.isOutlinable(): Boolean = when {
+    this is JumpInsnNode || this is TableSwitchInsnNode || this is LookupSwitchInsnNode -> false
+    this is FrameNode                                                                  -> false
+    opcode == RET || opcode == MONITORENTER || opcode == MONITOREXIT                   -> false
+    this is MethodInsnNode && opcode == INVOKESPECIAL && name != "<init>"              -> false
+    else                                                                               -> true
+}
@@ -0,0 +1,35 @@
+package net.onedaybeard.graftt.graft
+
+/** Stages of transplanting, as reported to [PhaseListener] */
+enum class Phase {
+    /** reading class file into a [org.objectweb.asm.tree.ClassNode] */
+    PARSE,
+    /** substituting transplant types with recipient types in donor */
+    REMAP,
+    /** grafting donor onto recipient */
+    SURGERY,
+    VERIFY,
+    /** writing recipient back to a class file */
+    SERIALIZE
+}
+
+/** Receives time spent in each [Phase] */
+interface PhaseListener {
+    fun onPhase(phase: Phase, nanos: Long)
+
+    companion object {
+        val NONE: PhaseListener = object : PhaseListener {
+            override fun onPhase(phase: Phase, nanos: Long) = Unit
+        }
+    }
+}
+
+/** runs [f], reporting its duration as [phase] */
+inline fun <T> PhaseListener.timed(phase: Phase, f: () -> T): T {
+    val start = System.nanoTime()
+    try {
+        return f()
+    } finally {
+        onPhase(phase, System.nanoTime() - start)
+    }
+}
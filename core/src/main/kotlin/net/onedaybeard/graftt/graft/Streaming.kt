@@ -0,0 +1,224 @@
+package net.onedaybeard.graftt.graft
+
+import com.github.michaelbull.result.*
+import net.onedaybeard.graftt.Graft
+import net.onedaybeard.graftt.Msg
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.verify
+import org.objectweb.asm.*
+import org.objectweb.asm.Opcodes.ASM7
+import org.objectweb.asm.commons.Remapper
+import org.objectweb.asm.tree.AnnotationNode
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.FieldNode
+import org.objectweb.asm.tree.MethodNode
+import java.util.*
+
+/**
+ * Streaming counterpart of [transplant], operating on the class file of
+ * [recipient]. Produces the same class as the [ClassNode] based engine,
+ * save for the order of the constant pool.
+ *
+ * Surgery is planned on a skeleton of [recipient], parsed without code.
+ * The class is then streamed from its [ClassReader] into a [ClassWriter]
+ * sharing the same constant pool: untouched method bodies are copied byte
+ * for byte, including methods only renamed by fusing. Nodes are only
+ * built for transplanted members and members with altered annotations.
+ *
+ * [Verification.MODIFIED_METHODS_ONLY] is cheap, as it only involves the
+ * transplanted methods. [Verification.FULL] parses the grafted class
+ * file in its entirety.
+ */
+@JvmOverloads
+fun transplant(
+    donors: List<ClassNode>,
+    recipient: ByteArray,
+    remapper: Remapper,
+    listener: PhaseListener = PhaseListener.NONE,
+    verification: Verification = Verification.FULL
+): Result<ByteArray, Msg> {
+    val cr = ClassReader(recipient)
+    val skeleton = listener.timed(Phase.PARSE) {
+        ClassNode(ASM7).also { cn -> cr.accept(cn, ClassReader.SKIP_CODE) }
+            .also { cn -> parseInlinedCode(cr, cn, donors, remapper) }
+    }
+    val original = Members(skeleton)
+
+    // the skeleton lacks code; full verification must wait for the class file
+    val early = verification.takeIf { it == Verification.MODIFIED_METHODS_ONLY } ?: Verification.OFF
+
+    return surgery(donors, skeleton, remapper, listener)
+        .andThen { cn -> verify(cn, early, listener, original::contains) }
+        .map { cn -> listener.timed(Phase.SERIALIZE) { stream(cr, cn, original) } }
+        .andThen { bytes -> if (verification == Verification.FULL) verifyFully(bytes, listener) else Ok(bytes) }
+}
+
+/**
+ * Parses the code of [skeleton] methods which are to be inlined into
+ * their [Graft.Fuse.inline]d counterparts; all other methods are skipped.
+ */
+private fun parseInlinedCode(
+    cr: ClassReader,
+    skeleton: ClassNode,
+    donors: List<ClassNode>,
+    remapper: Remapper
+) {
+    val inlined = donors
+        .flatMap { donor -> donor.methods.map { mn -> Transplant.Method(donor.name, mn) } }
+        .filter(Transplant.Method::inline)
+        .map { t -> t.node.name + remapper.mapMethodDesc(t.node.desc) }
+        .toSet()
+
+    val originals = skeleton.methods
+        .filter { mn -> mn.name + mn.desc in inlined }
+        .associateBy { mn -> mn.name + mn.desc }
+
+    if (originals.isEmpty())
+        return
+
+    cr.accept(object : ClassVisitor(ASM7) {
+        override fun visitMethod(
+            access: Int,
+            name: String,
+            descriptor: String,
+            signature: String?,
+            exceptions: Array<String>?
+        ): MethodVisitor? {
+            val original = originals[name + descriptor] ?: return null
+            return object : MethodNode(ASM7, access, name, descriptor, signature, exceptions) {
+                override fun visitEnd() {
+                    original.instructions = instructions
+                    original.tryCatchBlocks = tryCatchBlocks
+                    original.localVariables = localVariables
+                    original.maxStack = maxStack
+                    original.maxLocals = maxLocals
+                }
+            }
+        }
+    }, 0)
+}
+
+private fun verifyFully(classfile: ByteArray, listener: PhaseListener): Result<ByteArray, Msg> =
+    listener.timed(Phase.VERIFY) { verify(classNode(classfile)) }.map { classfile }
+
+private fun stream(cr: ClassReader, grafted: ClassNode, original: Members): ByteArray {
+    val cw = ClassWriter(cr, 0)
+    cr.accept(GraftingClassVisitor(cw, grafted, original), 0)
+    return cw.toByteArray()
+}
+
+/** members of the recipient, as parsed prior to surgery */
+private class Members(recipient: ClassNode) {
+    val fields: List<FieldNode> = recipient.fields.toList()
+    val methods: List<MethodNode> = recipient.methods.toList()
+
+    private val annotations = IdentityHashMap<Any, List<AnnotationNode>>().apply {
+        put(recipient, annotationsOf(recipient))
+        fields.forEach { put(it, annotationsOf(it)) }
+        methods.forEach { put(it, annotationsOf(it)) }
+    }
+
+    operator fun contains(node: Any) = node in annotations
+
+    fun annotationsChanged(node: Any) = annotations[node] != annotationsOf(node)
+
+    /** visible followed by invisible annotations */
+    private fun annotationsOf(node: Any): List<AnnotationNode> = when (node) {
+        is ClassNode  -> node.visibleAnnotations.orEmpty() + node.invisibleAnnotations.orEmpty()
+        is FieldNode  -> node.visibleAnnotations.orEmpty() + node.invisibleAnnotations.orEmpty()
+        is MethodNode -> node.visibleAnnotations.orEmpty() + node.invisibleAnnotations.orEmpty()
+        else          -> throw Error("$node")
+    }
+}
+
+/**
+ * Rewrites the recipient according to [grafted]. Relies on [ClassReader]
+ * visiting fields and methods in the same order as they were parsed into
+ * the skeleton.
+ */
+private class GraftingClassVisitor(
+    cw: ClassWriter,
+    val grafted: ClassNode,
+    val original: Members
+) : ClassVisitor(ASM7, cw) {
+
+    private val fields = original.fields.iterator()
+    private val methods = original.methods.iterator()
+    private val retained = Collections.newSetFromMap(IdentityHashMap<Any, Boolean>())
+        .apply { addAll(grafted.fields); addAll(grafted.methods) }
+
+    private val reannotate = original.annotationsChanged(grafted)
+
+    override fun visit(
+        version: Int,
+        access: Int,
+        name: String,
+        signature: String?,
+        superName: String?,
+        interfaces: Array<String>?
+    ) {
+        super.visit(version, access, name, signature, superName, grafted.interfaces.toTypedArray())
+    }
+
+    override fun visitAnnotation(descriptor: String, visible: Boolean): AnnotationVisitor? {
+        return if (reannotate) null else super.visitAnnotation(descriptor, visible)
+    }
+
+    override fun visitField(
+        access: Int,
+        name: String,
+        descriptor: String,
+        signature: String?,
+        value: Any?
+    ): FieldVisitor? {
+        val fn = fields.next()
+        return when {
+            fn !in retained                  -> null
+            original.annotationsChanged(fn) -> { fn.accept(cv); null }
+            else                             -> super.visitField(access, name, descriptor, signature, value)
+        }
+    }
+
+    override fun visitMethod(
+        access: Int,
+        name: String,
+        descriptor: String,
+        signature: String?,
+        exceptions: Array<String>?
+    ): MethodVisitor? {
+        val mn = methods.next()
+        if (mn !in retained)
+            return null
+
+        // a MethodWriter handed straight back to the ClassReader copies the code as-is
+        val mv = super.visitMethod(access, mn.name, descriptor, signature, exceptions)
+        return if (original.annotationsChanged(mn)) ReannotatingMethodVisitor(mv, mn) else mv
+    }
+
+    override fun visitEnd() {
+        if (reannotate) {
+            grafted.visibleAnnotations?.forEach { an -> an.accept(cv.visitAnnotation(an.desc, true)) }
+            grafted.invisibleAnnotations?.forEach { an -> an.accept(cv.visitAnnotation(an.desc, false)) }
+        }
+
+        grafted.fields.filterNot(original::contains).forEach { fn -> fn.accept(cv) }
+        grafted.methods.filterNot(original::contains).forEach { mn -> mn.accept(cv) }
+
+        super.visitEnd()
+    }
+}
+
+/** replaces the annotations of a streamed method with those of [method] */
+private class ReannotatingMethodVisitor(
+    mv: MethodVisitor,
+    val method: MethodNode
+) : MethodVisitor(ASM7, mv) {
+
+    override fun visitAnnotation(descriptor: String, visible: Boolean): AnnotationVisitor? = null
+
+    override fun visitEnd() {
+        method.visibleAnnotations?.forEach { an -> an.accept(super.visitAnnotation(an.desc, true)) }
+        method.invisibleAnnotations?.forEach { an -> an.accept(super.visitAnnotation(an.desc, false)) }
+        super.visitEnd()
+    }
+}
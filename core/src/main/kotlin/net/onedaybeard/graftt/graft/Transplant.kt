@@ -39,6 +39,14 @@ sealed class Transplant<T> {
     val overwriteAnnotations: Boolean
         get() = annotations().read(Graft.Annotations::overwrite).get() ?: false
 
+    /** true if the original method is to be spliced into the [Graft.Fuse]d method */
+    val inline: Boolean
+        get() = annotations().read(Graft.Fuse::inline).get() ?: false
+
+    /** true if cold paths are to be moved out of the [Graft.Outline]d method */
+    val outline: Boolean
+        get() = type<Graft.Outline>() in annotations()
+
     fun annotations(): MutableIterable<AnnotationNode> = when (this) {
         is Field  -> node.annotations()
         is Method -> node.annotations()
@@ -72,4 +80,12 @@ sealed class Transplant<T> {
         is Method -> recipient.methods.find(node::signatureEquals)
         is Class  -> recipient
     } as T?
+
+    /** as [findRecipientNode], looking up members in [members] */
+    @Suppress("IMPLICIT_CAST_TO_ANY", "UNCHECKED_CAST")
+    internal fun findRecipientNode(members: MemberIndex): T? = when (this) {
+        is Field  -> members.find(node)
+        is Method -> members.find(node)
+        is Class  -> members.recipient
+    } as T?
 }
@@ -0,0 +1,54 @@
+package net.onedaybeard.graftt.graft
+
+import com.github.michaelbull.result.Ok
+import com.github.michaelbull.result.Result
+import com.github.michaelbull.result.map
+import net.onedaybeard.graftt.Msg
+import net.onedaybeard.graftt.verify
+import org.objectweb.asm.Opcodes.ASM7
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.MethodNode
+
+/** Extent of bytecode verification after transplanting */
+enum class Verification {
+    /** every method of the recipient */
+    FULL,
+    /** only methods originating from donors; the recipient is trusted as compiled */
+    MODIFIED_METHODS_ONLY,
+    /** no verification, e.g. when transplants were already verified at build time */
+    OFF;
+
+    /** as passed in configuration, e.g. `modified-methods-only` */
+    val key: String
+        get() = name.toLowerCase().replace('_', '-')
+
+    companion object {
+        fun parse(key: String): Verification = values().find { it.key == key }
+            ?: throw IllegalArgumentException("verification must be one of ${values().map(Verification::key)}: $key")
+    }
+}
+
+/** verifies [cn] according to [mode]; [untouched] methods are skipped by [Verification.MODIFIED_METHODS_ONLY] */
+internal fun verify(
+    cn: ClassNode,
+    mode: Verification,
+    listener: PhaseListener,
+    untouched: (MethodNode) -> Boolean
+): Result<ClassNode, Msg> = when (mode) {
+    Verification.FULL                  -> listener.timed(Phase.VERIFY) { verify(cn) }
+    Verification.MODIFIED_METHODS_ONLY -> listener.timed(Phase.VERIFY) {
+        verify(cn.withMethods(cn.methods.filterNot(untouched))).map { cn }
+    }
+    Verification.OFF                   -> Ok(cn)
+}
+
+/** header of this class, declaring only [methods] */
+private fun ClassNode.withMethods(methods: List<MethodNode>) = ClassNode(ASM7).also { cn ->
+    cn.version = version
+    cn.access = access
+    cn.name = name
+    cn.signature = signature
+    cn.superName = superName
+    cn.interfaces = interfaces
+    cn.methods = methods
+}
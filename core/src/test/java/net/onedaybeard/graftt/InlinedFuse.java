@@ -0,0 +1,115 @@
+package net.onedaybeard.graftt;
+
+public interface InlinedFuse {
+
+    class Foo {
+        public int touched;
+
+        public String greet(String name) {
+            return "hello " + name;
+        }
+
+        public int sign(long value) {
+            if (value < 0)
+                return -1;
+            if (value == 0)
+                return 0;
+
+            return 1;
+        }
+
+        public int clamp(int value) {
+            return value > 10 ? 10 : value;
+        }
+
+        public static double sum(double[] values) {
+            double sum = 0;
+            for (double value : values)
+                sum += value;
+
+            return sum;
+        }
+
+        public int parse(String s) {
+            try {
+                return Integer.parseInt(s);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        public void touch() {
+            touched++;
+        }
+
+        public String twice() {
+            return "foo";
+        }
+
+        public int plusOne() {
+            return 1;
+        }
+    }
+
+    @Graft.Recipient(Foo.class)
+    class FooTransplant {
+        @Graft.Mock
+        public int touched;
+
+        @Graft.Fuse(inline = true)
+        public String greet(String name) {
+            String greeting = greet(name.toUpperCase());
+            return greeting + "!";
+        }
+
+        @Graft.Fuse(inline = true)
+        public int sign(long value) {
+            int sign = sign(value);
+            return sign < 0 ? sign * 10 : sign;
+        }
+
+        @Graft.Fuse(inline = true)
+        public int clamp(int value) {
+            int total = 0;
+            for (int i = value - 2; i <= value; i++) {
+                int clamped = clamp(i);
+                total += clamped;
+            }
+
+            return total;
+        }
+
+        @Graft.Fuse(inline = true)
+        public static double sum(double[] values) {
+            double sum = sum(values);
+            return sum / values.length;
+        }
+
+        @Graft.Fuse(inline = true)
+        public int parse(String s) {
+            try {
+                return parse(s.trim()) + 1;
+            } catch (IllegalStateException e) {
+                return -2;
+            }
+        }
+
+        @Graft.Fuse(inline = true)
+        public void touch() {
+            touched += 10;
+            touch();
+        }
+
+        /** invokes the original twice; not inlined */
+        @Graft.Fuse(inline = true)
+        public String twice() {
+            return twice() + twice();
+        }
+
+        /** operand stack isn't empty when invoking the original; not inlined */
+        @Graft.Fuse(inline = true)
+        public int plusOne() {
+            return 1 + plusOne();
+        }
+    }
+}
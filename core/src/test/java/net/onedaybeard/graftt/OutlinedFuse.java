@@ -0,0 +1,80 @@
+package net.onedaybeard.graftt;
+
+public interface OutlinedFuse {
+
+    class Foo {
+        public boolean trace;
+        public int traced;
+        public int failures;
+
+        public int get(int key) {
+            if (key == 13)
+                throw new IllegalArgumentException("unlucky: " + key);
+
+            return key * 2;
+        }
+
+        public void put(String key, int value) {
+            Integer.parseInt(key);
+        }
+
+        public String name(String s) {
+            if (s.isEmpty())
+                throw new IllegalStateException("empty");
+
+            return s;
+        }
+    }
+
+    @Graft.Recipient(Foo.class)
+    class FooTransplant {
+        @Graft.Mock
+        public boolean trace;
+        @Graft.Mock
+        public int traced;
+        @Graft.Mock
+        public int failures;
+
+        @Graft.Outline
+        @Graft.Fuse
+        public int get(int key) {
+            if (key < 0)
+                throw new IllegalArgumentException("negative key: " + key);
+
+            if (trace)
+                traced += key;
+
+            try {
+                return get(key);
+            } catch (IllegalArgumentException e) {
+                failures++;
+                throw new IllegalStateException("failed: " + key, e);
+            }
+        }
+
+        /** catch block continues after the try statement */
+        @Graft.Outline
+        @Graft.Fuse
+        public void put(String key, int value) {
+            try {
+                put(key, value);
+            } catch (NumberFormatException e) {
+                failures += value;
+            }
+        }
+
+        /** catch block assigns a local read after it; not outlined */
+        @Graft.Outline
+        @Graft.Fuse
+        public String name(String s) {
+            String name;
+            try {
+                name = name(s);
+            } catch (IllegalStateException e) {
+                name = "unnamed " + failures;
+            }
+
+            return name + "!";
+        }
+    }
+}
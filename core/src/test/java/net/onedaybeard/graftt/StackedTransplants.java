@@ -0,0 +1,42 @@
+package net.onedaybeard.graftt;
+
+public interface StackedTransplants {
+
+    class Foo {
+        public String trace = "";
+
+        public String hello() {
+            trace += "foo";
+            return trace;
+        }
+    }
+
+    @Graft.Recipient(Foo.class)
+    class ATransplant {
+        @Graft.Mock
+        public String trace;
+
+        @Graft.Fuse
+        public String hello() {
+            trace += "a>";
+            return hello();
+        }
+    }
+
+    @Graft.Recipient(Foo.class)
+    class BTransplant implements Runnable {
+        @Graft.Mock
+        public String trace;
+
+        @Graft.Fuse
+        public String hello() {
+            trace += "b>";
+            return hello();
+        }
+
+        @Override
+        public void run() {
+            trace = "";
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package net.onedaybeard.graftt
+
+import com.github.michaelbull.result.*
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.asm.toBytes
+import net.onedaybeard.graftt.asm.type
+import net.onedaybeard.graftt.graft.transplantAll
+import net.onedaybeard.graftt.graft.transplantAllClassfiles
+import org.junit.Test
+import org.objectweb.asm.tree.ClassNode
+import java.util.concurrent.ForkJoinPool
+import kotlin.reflect.KClass
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class BatchTests {
+
+    @Test
+    fun `donors are grouped and grafted per recipient`() {
+        val donors = donorsOf(
+            StackedTransplants.BTransplant::class,
+            SingleClassMethodTransplant::class,
+            StackedTransplants.ATransplant::class,
+            WantInterfacesTransplant::class)
+
+        val batch = transplantAll(donors, ::loadClassNode, pool = ForkJoinPool(2))
+        assertEquals(listOf(), batch.errors)
+        assertEquals(
+            setOf(type<StackedTransplants.Foo>(), type<SingleClassMethod>(), type<WantInterfaces>()),
+            batch.results.keys)
+
+        instantiate(batch.results.getValue(type<StackedTransplants.Foo>()).unwrap()) {
+            assertEquals("b>a>foo", invokeMethod<String>("hello"))
+        }
+    }
+
+    @Test
+    fun `errors are collected per recipient`() {
+        val donors = donorsOf(
+            SingleClassWrongFuseTransplant::class,
+            WantInterfacesTransplant::class) + classNode<WantInterfaces>()
+
+        val batch = transplantAll(donors, ::loadClassNode)
+        assertEquals(2, batch.errors.size)
+        assertTrue(batch.errors.any { it is Msg.MissingGraftTargetAnnotation })
+        assertTrue(batch.results.getValue(type<WantInterfaces>()) is Ok)
+        assertTrue(batch.results.getValue(type<SingleClassMethod>()) is Err)
+    }
+
+    @Test
+    fun `streaming batch produces the same classes`() {
+        val donors = donorsOf(
+            StackedTransplants.ATransplant::class,
+            StackedTransplants.BTransplant::class,
+            WantInterfacesTransplant::class)
+
+        val tree = transplantAll(donors, ::loadClassNode)
+        val streamed = transplantAllClassfiles(donors, { t -> loadClassNode(t).map(ClassNode::toBytes) })
+
+        assertEquals(tree.results.keys, streamed.results.keys)
+        tree.results.forEach { (recipient, grafted) ->
+            assertEquals(
+                grafted.unwrap().toDebugString(),
+                classNode(streamed.results.getValue(recipient).unwrap()).toDebugString())
+        }
+    }
+
+    private fun donorsOf(vararg transplants: KClass<*>): List<ClassNode> = transplants.map(::classNode)
+}
@@ -0,0 +1,96 @@
+package net.onedaybeard.graftt
+
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.asm.internalName
+import net.onedaybeard.graftt.asm.toBytes
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class ClassfilesTests {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    /** class files keyed by path, in no particular order */
+    private val classes = listOf(
+        OutlinedFuse.FooTransplant::class,
+        InlinedFuse.Foo::class,
+        OutlinedFuse.Foo::class,
+        InlinedFuse.FooTransplant::class
+    ).associate { type -> "${type.internalName}.class" to classNode(type).toBytes() }
+
+    @Test
+    fun `directories are read in path order`() {
+        val dir = tmp.newFolder("classes")
+        classes.forEach { (path, bytes) ->
+            File(dir, path).apply { parentFile.mkdirs() }.writeBytes(bytes)
+        }
+
+        val expected = classes.toSortedMap().values.toList()
+        assertClassfiles(expected, classfiles(dir))
+    }
+
+    @Test
+    fun `jars are read in stored order, stored and deflated`() {
+        val jar = tmp.newFile("classes.jar")
+        ZipOutputStream(jar.outputStream()).use { out ->
+            classes.entries.forEachIndexed { i, (path, bytes) ->
+                out.putNextEntry(ZipEntry(path).apply { if (i % 2 == 0) store(bytes) })
+                out.write(bytes)
+                out.closeEntry()
+            }
+            out.putNextEntry(ZipEntry("META-INF/notes.txt"))
+            out.write("not a class".toByteArray())
+            out.closeEntry()
+        }
+
+        assertClassfiles(classes.values.toList(), classfiles(jar))
+        assertEquals(classes.keys.map { it.removeSuffix(".class") }, classNodes(jar).map { it.name })
+    }
+
+    @Test
+    fun `results are handed over in order`() {
+        val jar = tmp.newFile("classes.jar")
+        ZipOutputStream(jar.outputStream()).use { out ->
+            (0 until 500).forEach { i ->
+                out.putNextEntry(ZipEntry("C$i.class"))
+                out.write(byteArrayOf((i shr 8).toByte(), i.toByte()))
+                out.closeEntry()
+            }
+        }
+
+        val read = mutableListOf<Int>()
+        forEachClassfile(jar, { bytes -> (bytes[0].toInt() and 0xff shl 8) or (bytes[1].toInt() and 0xff) }) { read += it }
+        assertEquals((0 until 500).toList(), read)
+
+        // nulls are skipped
+        assertEquals(250, mapClassfiles(jar) { bytes -> bytes.takeIf { it[1] % 2 == 0 } }.size)
+    }
+
+    @Test
+    fun `failures are rethrown on the calling thread`() {
+        val dir = tmp.newFolder("classes")
+        File(dir, "Broken.class").writeBytes(byteArrayOf(1, 2, 3))
+
+        assertFailsWith<ArrayIndexOutOfBoundsException> { classNodes(dir) }
+    }
+
+    private fun assertClassfiles(expected: List<ByteArray>, actual: List<ByteArray>) {
+        assertEquals(expected.size, actual.size)
+        assertTrue(expected.zip(actual).all { (e, a) -> e.contentEquals(a) })
+    }
+
+    private fun ZipEntry.store(bytes: ByteArray) {
+        method = ZipEntry.STORED
+        size = bytes.size.toLong()
+        crc = CRC32().apply { update(bytes) }.value
+    }
+}
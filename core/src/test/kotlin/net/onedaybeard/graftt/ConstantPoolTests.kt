@@ -0,0 +1,50 @@
+package net.onedaybeard.graftt
+
+import net.onedaybeard.graftt.asm.internalName
+import net.onedaybeard.graftt.asm.constantPoolContains
+import net.onedaybeard.graftt.asm.constantPoolTypes
+import net.onedaybeard.graftt.graft.isTransplantCandidate
+import org.junit.Test
+import kotlin.reflect.KClass
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class ConstantPoolTests {
+
+    @Test
+    fun `transplants are identified as candidates`() {
+        assertTrue(isTransplantCandidate(bytesOf(SingleClassMethodTransplant::class)))
+        assertTrue(isTransplantCandidate(bytesOf(WantInterfacesTransplant::class)))
+    }
+
+    @Test
+    fun `recipients are not transplant candidates`() {
+        assertFalse(isTransplantCandidate(bytesOf(SingleClassMethod::class)))
+        assertFalse(isTransplantCandidate(bytesOf(WantInterfaces::class)))
+    }
+
+    @Test
+    fun `scanning skips over wide and two-slot constants`() {
+        // java.lang.Long's pool holds long constants, occupying two slots each
+        val bytes = java.lang.Long::class.java
+            .getResourceAsStream("Long.class")
+            .use { it.readBytes() }
+
+        assertTrue(constantPoolContains(bytes, "MIN_VALUE".toByteArray()))
+        assertFalse(constantPoolContains(bytes, "Lnet/onedaybeard/graftt/Graft\$Recipient;".toByteArray()))
+    }
+
+    @Test
+    fun `types are gathered from class constants and descriptors`() {
+        val types = constantPoolTypes(bytesOf(WantInterfacesTransplant::class))
+
+        assertTrue(WantInterfacesTransplant::class.internalName in types)
+        assertTrue(WantInterfaces::class.internalName in types)
+        assertTrue("net/onedaybeard/graftt/Graft\$Recipient" in types)
+        assertFalse("net/onedaybeard/graftt/Unrelated" in types)
+    }
+
+    private fun bytesOf(type: KClass<*>): ByteArray = type.java
+        .getResourceAsStream("/${type.internalName}.class")
+        .use { it.readBytes() }
+}
@@ -0,0 +1,68 @@
+package net.onedaybeard.graftt
+
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.asm.internalName
+import net.onedaybeard.graftt.asm.toBytes
+import net.onedaybeard.graftt.graft.discover
+import net.onedaybeard.graftt.graft.discoverTransplants
+import net.onedaybeard.graftt.graft.transplants
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import kotlin.reflect.KClass
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+class DiscoveryTests {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    private val classes = listOf(
+        InlinedFuse.Foo::class,
+        InlinedFuse.FooTransplant::class,
+        OutlinedFuse.Foo::class,
+        OutlinedFuse.FooTransplant::class)
+
+    @Test
+    fun `recipients are not discovered`() {
+        assertNull(discover(classNode<InlinedFuse.Foo>().toBytes()))
+
+        val transplant = discover(classNode<InlinedFuse.FooTransplant>().toBytes())
+        assertNotNull(transplant)
+        assertEquals(InlinedFuse.FooTransplant::class.internalName, transplant.name)
+        assertEquals(InlinedFuse.Foo::class.internalName, transplant.recipient)
+        assertEquals(listOf(), transplant.profiles)
+    }
+
+    @Test
+    fun `transplants are discovered in directories and jars`() {
+        val dir = tmp.newFolder("classes")
+        classes.forEach { type ->
+            File(dir, "${type.internalName}.class")
+                .apply { parentFile.mkdirs() }
+                .writeBytes(classNode(type).toBytes())
+        }
+
+        val jar = tmp.newFile("classes.jar")
+        JarOutputStream(jar.outputStream()).use { out ->
+            classes.forEach { type ->
+                out.putNextEntry(JarEntry("${type.internalName}.class"))
+                out.write(classNode(type).toBytes())
+                out.closeEntry()
+            }
+        }
+
+        val expected = listOf(InlinedFuse.FooTransplant::class, OutlinedFuse.FooTransplant::class)
+            .map(KClass<*>::internalName)
+
+        listOf(dir, jar).forEach { root ->
+            assertEquals(expected, discoverTransplants(root).map { it.name }.sorted())
+            assertEquals(expected, transplants(root).map { it.name }.sorted())
+        }
+    }
+}
@@ -34,6 +34,27 @@ class GraftTests {
         }
     }
 
+    @Test
+    fun `multiple transplants stack onto the same recipient`() {
+        val donors = listOf(
+            StackedTransplants.BTransplant::class,
+            StackedTransplants.ATransplant::class)
+
+        val recipient = net.onedaybeard.graftt.graft.transplant(
+            donors.map(::classNode),
+            classNode<StackedTransplants.Foo>(),
+            transplantRemapper(*donors.toTypedArray()))
+
+        instantiate(recipient) {
+            assertMethodExists("hello\$original")
+            assertMethodExists("hello\$original\$1")
+            assertEquals("b>a>foo", invokeMethod<String>("hello"))
+
+            (this as Runnable).run()
+            assertFieldValue("trace", "")
+        }
+    }
+
     @Test
     fun `fuse a simple method without arguments`() {
         val recipient = transplant<SingleClassMethodTransplant>()
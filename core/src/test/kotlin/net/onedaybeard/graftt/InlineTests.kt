@@ -0,0 +1,64 @@
+package net.onedaybeard.graftt
+
+import com.github.michaelbull.result.unwrap
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.asm.toBytes
+import net.onedaybeard.graftt.graft.transplant
+import org.junit.Test
+import org.objectweb.asm.tree.ClassNode
+import kotlin.test.assertEquals
+
+class InlineTests {
+
+    @Test
+    fun `inlined originals leave no trace in the recipient`() {
+        assertOriginals(transplant<InlinedFuse.FooTransplant>().unwrap())
+    }
+
+    @Test
+    fun `inlined originals behave as if invoked`() {
+        instantiate(transplant<InlinedFuse.FooTransplant>(), ::assertFused)
+    }
+
+    @Test
+    fun `streaming engine inlines originals`() {
+        val donors = listOf(classNode<InlinedFuse.FooTransplant>())
+        val remapper = transplantRemapper(InlinedFuse.FooTransplant::class)
+        val streamed = transplant(donors, classNode<InlinedFuse.Foo>().toBytes(), remapper).unwrap()
+
+        assertOriginals(classNode(streamed))
+        instantiate(classNode(streamed), ::assertFused)
+    }
+
+    /** only originals which can't be inlined remain */
+    private fun assertOriginals(recipient: ClassNode) {
+        assertEquals(
+            listOf("twice\$original", "plusOne\$original"),
+            recipient.methods.map { it.name }.filter { it.contains("\$original") })
+    }
+
+    private fun assertFused(foo: Any) {
+        foo.method("greet", listOf("graftt"), "hello GRAFTT!")
+
+        foo.method("sign", listOf(-5L), -10)
+        foo.method("sign", listOf(0L), 0)
+        foo.method("sign", listOf(5L), 1)
+
+        foo.method("clamp", listOf(3), 6)
+        foo.method("clamp", listOf(12), 30)
+
+        foo.method("sum", listOf(doubleArrayOf(1.0, 2.0, 6.0)), 3.0)
+
+        foo.method("parse", listOf(" 41 "), 42)
+        foo.method("parse", listOf("x"), 0)
+
+        foo.invokeMethod<Unit>("touch", observeField("touched", 0 to 11))
+
+        foo.method("twice", expected = "foofoo")
+        foo.method("plusOne", expected = 2)
+    }
+
+    private fun instantiate(cn: ClassNode, f: (Any) -> Unit) {
+        net.onedaybeard.graftt.instantiate(cn) { f(this) }
+    }
+}
@@ -0,0 +1,56 @@
+package net.onedaybeard.graftt
+
+import com.github.michaelbull.result.unwrap
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.graft.InliningThreshold.FREQ_INLINE_SIZE
+import net.onedaybeard.graftt.graft.InliningThreshold.MAX_INLINE_SIZE
+import net.onedaybeard.graftt.graft.codeSizes
+import net.onedaybeard.graftt.graft.inliningReport
+import net.onedaybeard.graftt.graft.readRecipientType
+import net.onedaybeard.graftt.graft.transplant
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class InliningReportTests {
+
+    @Test
+    fun `grafted methods are reported with size before and after`() {
+        val report = report(InlinedFuse.FooTransplant::class.java)
+        assertEquals(
+            listOf("greet", "sign", "clamp", "sum", "parse", "touch", "twice", "plusOne"),
+            report.methods.map { it.name })
+
+        val greet = report.methods.first { it.name == "greet" }
+        assertEquals(21, greet.sizeBefore)
+        assertEquals(51, greet.size)
+        assertEquals(5, greet.maxLocals)
+        assertTrue(greet.crosses(MAX_INLINE_SIZE))
+        assertFalse(greet.exceeds(FREQ_INLINE_SIZE))
+
+        assertEquals(
+            listOf("greet", "sign", "clamp"),
+            report.crossing(MAX_INLINE_SIZE).map { it.name })
+        assertEquals(listOf(), report.crossing(FREQ_INLINE_SIZE))
+    }
+
+    @Test
+    fun `added methods have no size before`() {
+        val report = report(DeclaredMethodTransplant::class.java)
+
+        val added = report.methods.first { it.name == "exclamation" }
+        assertNull(added.sizeBefore)
+        assertFalse(added.crosses(MAX_INLINE_SIZE))
+        assertTrue(report.methods.first { it.name == "toUpperCase" }.sizeBefore != null)
+    }
+
+    private fun report(transplant: Class<*>) = classNode(transplant).let { donor ->
+        val remapper = transplantRemapper(transplant.kotlin)
+        val recipient = loadClassNode(readRecipientType(donor).unwrap()).unwrap()
+        val sizes = codeSizes(recipient)
+
+        inliningReport(sizes, transplant(listOf(donor), recipient, remapper).unwrap(), listOf(donor), remapper)
+    }
+}
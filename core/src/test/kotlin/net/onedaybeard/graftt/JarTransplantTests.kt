@@ -0,0 +1,210 @@
+package net.onedaybeard.graftt
+
+import com.github.michaelbull.result.*
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.asm.internalName
+import net.onedaybeard.graftt.asm.toBytes
+import net.onedaybeard.graftt.asm.type
+import net.onedaybeard.graftt.graft.transplantAllClassfiles
+import net.onedaybeard.graftt.graft.transplantJar
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.jar.Attributes
+import java.util.jar.JarFile
+import java.util.jar.JarInputStream
+import java.util.jar.JarOutputStream
+import java.util.jar.Manifest
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class JarTransplantTests {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    private val donors = listOf(classNode<SingleClassMethodTransplant>())
+
+    @Test
+    fun `recipients are grafted, other entries copied as they are`() {
+        val input = jarOf(SingleClassMethod::class.java, InlinedFuse.Foo::class.java, Point::class.java)
+        val output = File(tmp.root, "grafted.jar")
+
+        val grafted = transplantJar(input, output, donors).unwrap()
+        assertEquals(listOf(type<SingleClassMethod>()), grafted)
+
+        val recipient = "${SingleClassMethod::class.internalName}.class"
+        ZipArchive.open(input).use { original ->
+            ZipArchive.open(output).use { copy ->
+                assertEquals(original.entries.map { it.name }, copy.entries.map { it.name })
+                original.entries.zip(copy.entries)
+                    .filter { (entry, _) -> entry.name != recipient }
+                    .forEach { (entry, copied) ->
+                        assertTrue(bytesOf(entry.local()).contentEquals(bytesOf(copied.local())), entry.name)
+                    }
+            }
+        }
+
+        // same as grafting the class file on its own
+        val expected = transplantAllClassfiles(donors, { ok(classNode<SingleClassMethod>().toBytes()) })
+            .results.getValue(type<SingleClassMethod>()).unwrap()
+
+        ZipFile(output).use { zip ->
+            val classfile = zip.getInputStream(zip.getEntry(recipient)).use(InputStream::readBytes)
+            assertEquals(classNode(expected).toDebugString(), classNode(classfile).toDebugString())
+            assertEquals("not a class", zip.getInputStream(zip.getEntry("META-INF/notes.txt")).reader().readText())
+        }
+    }
+
+    @Test
+    fun `jars without recipients are copied as they are`() {
+        val input = jarOf(InlinedFuse.Foo::class.java, Point::class.java)
+        val output = File(tmp.root, "copied.jar")
+
+        assertEquals(listOf(), transplantJar(input, output, listOf()).unwrap())
+        assertTrue(input.readBytes().contentEquals(output.readBytes()))
+    }
+
+    @Test
+    fun `input is released once grafted`() {
+        val input = jarOf(SingleClassMethod::class.java, Point::class.java)
+        val output = File(tmp.root, "grafted.jar")
+
+        transplantJar(input, output, donors).unwrap()
+
+        // as done by the transplant-jar goal; fails while the input is held open on some platforms
+        Files.move(output.toPath(), input.toPath(), StandardCopyOption.REPLACE_EXISTING)
+        assertTrue(input.delete())
+    }
+
+    @Test
+    fun `missing recipients fail without writing the jar`() {
+        val input = jarOf(Point::class.java)
+        val output = File(tmp.root, "grafted.jar")
+
+        val result = transplantJar(input, output, donors)
+        assertTrue(result.getError() is Msg.Error)
+        assertFalse(output.exists())
+    }
+
+    @Test
+    fun `jars written by JarOutputStream keep names, attributes and extra fields`() {
+        val recipient = "${SingleClassMethod::class.internalName}.class"
+        val resource = "META-INF/grüße-✓.txt"
+        val extra = byteArrayOf(0xfe.toByte(), 0xca.toByte(), 4, 0, 1, 2, 3, 4)
+
+        // deflated entries are written with data descriptors and UTF-8 names
+        val input = tmp.newFile("input.jar")
+        JarOutputStream(input.outputStream(), Manifest().apply { mainAttributes[Attributes.Name.MANIFEST_VERSION] = "1.0" }).use { out ->
+            out.putNextEntry(ZipEntry(recipient).also { it.extra = extra; it.comment = "recipient" })
+            out.write(classNode<SingleClassMethod>().toBytes())
+            out.closeEntry()
+            out.putNextEntry(ZipEntry(resource))
+            out.write("tschüss".toByteArray())
+            out.closeEntry()
+        }
+
+        // unix, rw-r--r--
+        input.patchCentral(recipient) { at ->
+            putShort(at + 4, 0x031e)
+            putInt(at + 38, 0x81a4 shl 16)
+        }
+
+        val output = File(tmp.root, "grafted.jar")
+        assertEquals(listOf(type<SingleClassMethod>()), transplantJar(input, output, donors).unwrap())
+
+        JarInputStream(output.inputStream()).use { jar ->
+            assertEquals("1.0", jar.manifest.mainAttributes[Attributes.Name.MANIFEST_VERSION])
+
+            val local = generateSequence { jar.nextJarEntry }
+                .associate { entry -> entry.name to (entry.extra to jar.readBytes()) }
+
+            assertEquals(listOf(recipient, resource), local.keys.toList())
+            assertTrue(extra.contentEquals(local.getValue(recipient).first))
+            assertEquals("tschüss", String(local.getValue(resource).second))
+            assertFalse(classNode<SingleClassMethod>().toBytes().contentEquals(local.getValue(recipient).second))
+        }
+
+        JarFile(output).use { jar ->
+            val entry = jar.getJarEntry(recipient)
+            assertTrue(extra.contentEquals(entry.extra))
+            assertEquals("recipient", entry.comment)
+        }
+
+        ZipArchive.open(output).use { zip ->
+            val central = ByteBuffer.wrap(zip.entries.first { it.name == recipient }.central()).order(ByteOrder.LITTLE_ENDIAN)
+            assertEquals(0x031e, central.getShort(4).toInt())
+            assertEquals(0x81a4 shl 16, central.getInt(38))
+        }
+    }
+
+    @Test
+    fun `signed jars fail without writing the jar`() {
+        val input = tmp.newFile("signed.jar")
+        ZipOutputStream(input.outputStream()).use { out ->
+            out.putNextEntry(ZipEntry("META-INF/SIGNER.SF"))
+            out.closeEntry()
+            out.putNextEntry(ZipEntry("${SingleClassMethod::class.internalName}.class"))
+            out.write(classNode<SingleClassMethod>().toBytes())
+            out.closeEntry()
+        }
+
+        val output = File(tmp.root, "grafted.jar")
+        val error = transplantJar(input, output, donors).getError()
+        assertTrue((error as Msg.Error).e.message!!.contains("signed jar"))
+        assertFalse(output.exists())
+    }
+
+    /** applies [patch] to the central directory record of [name], given its offset */
+    private fun File.patchCentral(name: String, patch: ByteBuffer.(Int) -> Unit) {
+        val bytes = readBytes()
+        val buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+        val encoded = name.toByteArray()
+        val at = (0 until bytes.size - 46 - encoded.size).first { i ->
+            buffer.getInt(i) == 0x02014b50 && bytes.copyOfRange(i + 46, i + 46 + encoded.size).contentEquals(encoded)
+        }
+
+        buffer.patch(at)
+        writeBytes(bytes)
+    }
+
+    /** jar with [classes] stored or deflated in turn, followed by a directory and a resource */
+    private fun jarOf(vararg classes: Class<*>): File {
+        val jar = tmp.newFile()
+        ZipOutputStream(jar.outputStream()).use { out ->
+            classes.forEachIndexed { i, type ->
+                val bytes = classNode(type.kotlin).toBytes()
+                out.putNextEntry(ZipEntry("${type.kotlin.internalName}.class").apply { if (i % 2 == 1) store(bytes) })
+                out.write(bytes)
+                out.closeEntry()
+            }
+
+            out.putNextEntry(ZipEntry("META-INF/"))
+            out.closeEntry()
+            out.putNextEntry(ZipEntry("META-INF/notes.txt"))
+            out.write("not a class".toByteArray())
+            out.closeEntry()
+        }
+
+        return jar
+    }
+
+    private fun bytesOf(buffer: java.nio.ByteBuffer) = ByteArray(buffer.remaining()).also { buffer.get(it) }
+
+    private fun ZipEntry.store(bytes: ByteArray) {
+        method = ZipEntry.STORED
+        size = bytes.size.toLong()
+        crc = CRC32().apply { update(bytes) }.value
+    }
+}
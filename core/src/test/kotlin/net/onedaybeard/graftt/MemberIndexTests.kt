@@ -0,0 +1,52 @@
+package net.onedaybeard.graftt
+
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.graft.MemberIndex
+import org.junit.Test
+import org.objectweb.asm.Opcodes.ACC_PUBLIC
+import org.objectweb.asm.tree.FieldNode
+import org.objectweb.asm.tree.MethodNode
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class MemberIndexTests {
+
+    @Test
+    fun `index follows renamed, added and removed methods`() {
+        val cn = classNode<StackedTransplants.Foo>()
+        val members = MemberIndex(cn)
+
+        val hello = MethodNode(ACC_PUBLIC, "hello", "()Ljava/lang/String;", null, null)
+        val original = members.find(hello)!!
+        assertSame(cn.methods.single { it.name == "hello" }, original)
+
+        members.rename(original, "hello\$original")
+        assertNull(members.find(hello))
+        assertTrue(members.hasMethod("hello\$original", hello.desc))
+
+        members.add(hello)
+        assertSame(hello, members.find(hello))
+        assertTrue(hello in cn.methods)
+
+        members.remove(original)
+        assertFalse(members.hasMethod("hello\$original", hello.desc))
+        assertFalse(original in cn.methods)
+    }
+
+    @Test
+    fun `replaced fields are removed from the recipient`() {
+        val cn = classNode<StackedTransplants.Foo>()
+        val members = MemberIndex(cn)
+
+        val trace = cn.fields.single { it.name == "trace" }
+        val replacement = FieldNode(trace.access, trace.name, trace.desc, trace.signature, null)
+        assertSame(trace, members.find(replacement))
+
+        members.replace(replacement)
+        assertSame(replacement, members.find(trace))
+        assertEquals(listOf(replacement), cn.fields.filter { it.name == "trace" })
+    }
+}
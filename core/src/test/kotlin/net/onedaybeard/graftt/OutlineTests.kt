@@ -0,0 +1,82 @@
+package net.onedaybeard.graftt
+
+import com.github.michaelbull.result.unwrap
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.asm.toBytes
+import net.onedaybeard.graftt.graft.InliningThreshold.MAX_INLINE_SIZE
+import net.onedaybeard.graftt.graft.transplant
+import org.junit.Test
+import org.objectweb.asm.Opcodes.ACC_SYNTHETIC
+import org.objectweb.asm.commons.CodeSizeEvaluator
+import org.objectweb.asm.tree.ClassNode
+import java.lang.reflect.InvocationTargetException
+import kotlin.reflect.KClass
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class OutlineTests {
+
+    @Test
+    fun `cold paths are moved to synthetic methods`() {
+        val recipient = transplant<OutlinedFuse.FooTransplant>().unwrap()
+        assertColdMethods(recipient)
+
+        // no wide jumps; the smallest encoding is the actual size
+        val get = recipient.methods.first { it.name == "get" }
+        val size = CodeSizeEvaluator(null).also(get.instructions::accept).minSize
+        assertTrue(size <= MAX_INLINE_SIZE.size, "get: $size bytes")
+    }
+
+    @Test
+    fun `outlined methods behave as if in place`() {
+        instantiate(transplant<OutlinedFuse.FooTransplant>(), ::assertOutlined)
+    }
+
+    @Test
+    fun `streaming engine outlines cold paths`() {
+        val donors = listOf(classNode<OutlinedFuse.FooTransplant>())
+        val remapper = transplantRemapper(OutlinedFuse.FooTransplant::class)
+        val streamed = transplant(donors, classNode<OutlinedFuse.Foo>().toBytes(), remapper).unwrap()
+
+        assertColdMethods(classNode(streamed))
+        instantiate(classNode(streamed), ::assertOutlined)
+    }
+
+    private fun assertColdMethods(recipient: ClassNode) {
+        val cold = recipient.methods.filter { it.name.contains("\$cold") }
+        assertEquals(
+            listOf("get\$cold", "get\$cold\$1", "get\$cold\$2", "put\$cold"),
+            cold.map { it.name })
+        assertTrue(cold.all { it.access and ACC_SYNTHETIC != 0 })
+    }
+
+    private fun assertOutlined(foo: Any) {
+        foo.method("get", listOf(2), 4)
+        foo.assertThrows("get", 13, IllegalStateException::class)
+        foo.assertThrows("get", -1, IllegalArgumentException::class)
+        foo.assertFieldValue("failures", 1)
+
+        foo.assertFieldValue("traced", 0)
+        foo::class.java.getField("trace").setBoolean(foo, true)
+        foo.method("get", listOf(3), 6)
+        foo.assertFieldValue("traced", 3)
+
+        foo.invokeMethod<Unit>("put", listOf("x", 5), observeField("failures", 1 to 6))
+        foo.invokeMethod<Unit>("put", listOf("1", 5), observeField("failures", 6 to 6))
+
+        foo.method("name", listOf("foo"), "foo!")
+        foo.method("name", listOf(""), "unnamed 6!")
+    }
+
+    private fun Any.assertThrows(name: String, key: Int, expected: KClass<out Throwable>) {
+        val thrown = assertFailsWith<InvocationTargetException> {
+            this::class.java.getMethod(name, Int::class.java).invoke(this, key)
+        }
+        assertEquals(expected, thrown.cause!!::class)
+    }
+
+    private fun instantiate(cn: ClassNode, f: (Any) -> Unit) {
+        net.onedaybeard.graftt.instantiate(cn) { f(this) }
+    }
+}
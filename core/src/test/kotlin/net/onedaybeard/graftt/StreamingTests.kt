@@ -0,0 +1,63 @@
+package net.onedaybeard.graftt
+
+import com.github.michaelbull.result.*
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.asm.toBytes
+import net.onedaybeard.graftt.graft.readRecipientType
+import net.onedaybeard.graftt.graft.transplant
+import org.junit.Test
+import org.objectweb.asm.tree.ClassNode
+import kotlin.reflect.KClass
+import kotlin.test.assertEquals
+
+class StreamingTests {
+
+    @Test
+    fun `streaming engine produces the same classes as the tree engine`() {
+        listOf(
+            listOf(SingleClassMethodTransplant::class),
+            listOf(DeclaredFieldTransplant::class),
+            listOf(DeclaredMethodTransplant::class),
+            listOf(MockedMethodTransplant::class),
+            listOf(ReplaceOriginalTransplant::class),
+            listOf(WantInterfacesTransplant::class),
+            listOf(FieldModifiers.FooTransplant::class),
+            listOf(FusedField.FooTransplant::class),
+            listOf(FusedField.FooRemoverTransplant::class),
+            listOf(FusedClass.FooTransplant::class),
+            listOf(FusedClass.FooRemoverTransplant::class),
+            listOf(AnnotationFusing.BarTransplant::class),
+            listOf(AnnotationFusing.FooTransplant::class),
+            listOf(StackedTransplants.ATransplant::class, StackedTransplants.BTransplant::class),
+            listOf(InlinedFuse.FooTransplant::class),
+            listOf(OutlinedFuse.FooTransplant::class)
+        ).forEach(::assertEquivalent)
+    }
+
+    @Test
+    fun `streaming engine reports the same errors as the tree engine`() {
+        val donors = listOf(classNode<SingleClassWrongFuseTransplant>())
+        val remapper = transplantRemapper(SingleClassWrongFuseTransplant::class)
+        val recipient = recipientOf(donors.first())
+
+        val streamed = transplant(donors, recipient.toBytes(), remapper)
+        assertEquals(transplant(donors, recipient, remapper).getError(), streamed.getError())
+    }
+
+    private fun assertEquivalent(transplants: List<KClass<*>>) {
+        val donors = transplants.map(::classNode)
+        val remapper = transplantRemapper(*transplants.toTypedArray())
+        val recipient = recipientOf(donors.first())
+
+        val streamed = transplant(donors, recipient.toBytes(), remapper)
+            .onFailure(`(╯°□°）╯︵ ┻━┻`)
+            .unwrap()
+
+        assertEquals(
+            transplant(donors, recipient, remapper).unwrap().toDebugString(),
+            classNode(streamed).toDebugString())
+    }
+
+    private fun recipientOf(donor: ClassNode): ClassNode =
+        readRecipientType(donor).andThen(::loadClassNode).unwrap()
+}
@@ -0,0 +1,92 @@
+package net.onedaybeard.graftt
+
+import com.github.michaelbull.result.Err
+import com.github.michaelbull.result.Ok
+import com.github.michaelbull.result.Result
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.asm.type
+import net.onedaybeard.graftt.graft.Verification
+import net.onedaybeard.graftt.graft.Verification.*
+import net.onedaybeard.graftt.graft.transplant
+import org.junit.Test
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.Type
+import org.objectweb.asm.commons.SimpleRemapper
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class VerificationTests {
+
+    @Test
+    fun `broken recipient methods are only caught by full verification`() {
+        val recipient = recipient(broken = true)
+        val donor = donor(broken = false)
+
+        assertVerification(recipient, donor, FULL, ok = false)
+        assertVerification(recipient, donor, MODIFIED_METHODS_ONLY, ok = true)
+        assertVerification(recipient, donor, OFF, ok = true)
+    }
+
+    @Test
+    fun `broken transplanted methods are caught unless verification is off`() {
+        val recipient = recipient(broken = false)
+        val donor = donor(broken = true)
+
+        assertVerification(recipient, donor, FULL, ok = false)
+        assertVerification(recipient, donor, MODIFIED_METHODS_ONLY, ok = false)
+        assertVerification(recipient, donor, OFF, ok = true)
+    }
+
+    @Test
+    fun `parse verification from configuration`() {
+        assertEquals(MODIFIED_METHODS_ONLY, Verification.parse("modified-methods-only"))
+        assertEquals(listOf("full", "modified-methods-only", "off"), Verification.values().map { it.key })
+    }
+
+    private fun assertVerification(recipient: ByteArray, donor: ByteArray, mode: Verification, ok: Boolean) {
+        val donors = listOf(classNode(donor))
+        val remapper = SimpleRemapper("verify/FooTransplant", "verify/Foo")
+
+        listOf<Result<Any, Msg>>(
+            transplant(donors, classNode(recipient), remapper, verification = mode),
+            transplant(donors, recipient, remapper, verification = mode)
+        ).forEach { result ->
+            when (result) {
+                is Ok  -> assertTrue(ok, "$mode")
+                is Err -> assertTrue(!ok && result.error is Msg.ClassVerificationError, "$mode: ${result.error}")
+            }
+        }
+    }
+
+    private fun recipient(broken: Boolean) = classfile("verify/Foo") {
+        method("original", broken)
+    }
+
+    private fun donor(broken: Boolean) = classfile("verify/FooTransplant") {
+        visitAnnotation(type<Graft.Recipient>().descriptor, false).apply {
+            visit("value", Type.getObjectType("verify/Foo"))
+            visitEnd()
+        }
+        method("added", broken)
+    }
+
+    private fun classfile(name: String, f: ClassWriter.() -> Unit): ByteArray {
+        return ClassWriter(ClassWriter.COMPUTE_MAXS).apply {
+            visit(V1_8, ACC_PUBLIC or ACC_SUPER, name, null, "java/lang/Object", null)
+            f()
+            visitEnd()
+        }.toByteArray()
+    }
+
+    /** `int name()`; a broken method returns its int as a reference */
+    private fun ClassWriter.method(name: String, broken: Boolean) {
+        visitMethod(ACC_PUBLIC, name, "()I", null, null).apply {
+            visitCode()
+            visitInsn(ICONST_1)
+            visitInsn(if (broken) ARETURN else IRETURN)
+            visitMaxs(0, 0)
+            visitEnd()
+        }
+    }
+}
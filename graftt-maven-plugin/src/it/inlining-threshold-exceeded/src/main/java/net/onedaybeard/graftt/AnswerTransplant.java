@@ -0,0 +1,12 @@
+package net.onedaybeard.graftt;
+
+@Graft.Recipient(Answer.class)
+public class AnswerTransplant {
+
+    // well past max-inline-size (35 bytes) once fused
+    @Graft.Fuse
+    public int value() {
+        String s = "value: " + value() + ", doubled: " + (value() * 2) + ", halved: " + (value() / 2);
+        return s.length();
+    }
+}
@@ -0,0 +1,5 @@
+def log = new File(basedir, 'build.log').text
+
+assert log.contains('net/onedaybeard/graftt/Answer::value()I')
+assert log.contains('1 fused methods exceed max-inline-size')
+assert !new File(basedir, 'target/test-classes').exists()
@@ -0,0 +1,8 @@
+package net.onedaybeard.graftt;
+
+public class Answer {
+
+    public int value() {
+        return 42;
+    }
+}
@@ -0,0 +1,11 @@
+package net.onedaybeard.graftt;
+
+@Graft.Recipient(Answer.class)
+public class AnswerTransplant {
+
+    // stays within max-inline-size (35 bytes) once fused
+    @Graft.Fuse
+    public int value() {
+        return value() + 1;
+    }
+}
@@ -0,0 +1,12 @@
+package net.onedaybeard.graftt
+
+import org.junit.Test
+import kotlin.test.assertEquals
+
+class IntegrationTests {
+
+    @Test
+    fun `fused method within threshold is grafted`() {
+        assertEquals(43, Answer().value())
+    }
+}
@@ -0,0 +1,11 @@
+package net.onedaybeard.graftt;
+
+@Graft.Recipient(Greeter.class)
+public class GreeterTransplant {
+
+    @Graft.Fuse
+    public String greet() {
+        // "grafted: hello" after transplant
+        return "grafted: " + greet();
+    }
+}
@@ -0,0 +1,40 @@
+package net.onedaybeard.graftt
+
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class IntegrationTests {
+
+    private val prebaked = readPrebaked(resource("/graftt.prebaked"))
+
+    @Test
+    fun `only recipients of the dependency are prebaked`() {
+        assertEquals(setOf("net/onedaybeard/graftt/Greeter"), prebaked.keys)
+    }
+
+    @Test
+    fun `prebaked recipient matches the classpath as seen by the agent`() {
+        val greeter = prebaked.getValue("net/onedaybeard/graftt/Greeter")
+
+        // recipient as passed to the agent, transplants as registered by it
+        val recipient = resource("/net/onedaybeard/graftt/Greeter.class")
+        val donors = listOf(contentHash(resource("/net/onedaybeard/graftt/GreeterTransplant.class")))
+
+        assertTrue(greeter.matches(recipient, donorsHash(donors)))
+        assertTrue(greeter.matches(recipient, null))
+    }
+
+    @Test
+    fun `prebaked recipient is grafted`() {
+        val loader = object : ClassLoader(null) {
+            fun define(classfile: ByteArray) = defineClass(null, classfile, 0, classfile.size)
+        }
+
+        val greeter = loader.define(prebaked.getValue("net/onedaybeard/graftt/Greeter").classfile).newInstance()
+        assertEquals("grafted: hello", greeter.javaClass.getMethod("greet").invoke(greeter))
+    }
+
+    private fun resource(path: String): ByteArray =
+        IntegrationTests::class.java.getResourceAsStream(path).use { it.readBytes() }
+}
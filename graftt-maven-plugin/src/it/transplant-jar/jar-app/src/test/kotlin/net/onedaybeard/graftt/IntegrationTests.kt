@@ -0,0 +1,45 @@
+package net.onedaybeard.graftt
+
+import org.junit.Test
+import java.io.File
+import java.net.URLClassLoader
+import java.util.zip.ZipFile
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class IntegrationTests {
+
+    private val original = File("../jar-lib/target/jar-lib-0.4.0-SNAPSHOT.jar")
+    private val grafted = File("target/jar-lib-grafted.jar")
+
+    @Test
+    fun `recipient is grafted`() {
+        assertEquals("grafted: hello", greet("net.onedaybeard.graftt.Greeter"))
+    }
+
+    @Test
+    fun `other classes are left as they are`() {
+        assertEquals("untouched", greet("net.onedaybeard.graftt.Untouched"))
+
+        val untouched = "net/onedaybeard/graftt/Untouched.class"
+        assertTrue(read(original, untouched).contentEquals(read(grafted, untouched)))
+    }
+
+    @Test
+    fun `original jar is left as it is`() {
+        val loader = URLClassLoader(arrayOf(original.toURI().toURL()), null)
+        val greeter = loader.loadClass("net.onedaybeard.graftt.Greeter").newInstance()
+        assertEquals("hello", greeter.javaClass.getMethod("greet").invoke(greeter))
+    }
+
+    /** loads [name] from the grafted jar only */
+    private fun greet(name: String): Any {
+        val loader = URLClassLoader(arrayOf(grafted.toURI().toURL()), null)
+        val o = loader.loadClass(name).newInstance()
+        return o.javaClass.getMethod("greet").invoke(o)
+    }
+
+    private fun read(jar: File, entry: String): ByteArray = ZipFile(jar).use { zip ->
+        zip.getInputStream(zip.getEntry(entry)).readBytes()
+    }
+}
@@ -0,0 +1,7 @@
+package net.onedaybeard.graftt;
+
+public class Greeter {
+    public String greet() {
+        return "hello";
+    }
+}
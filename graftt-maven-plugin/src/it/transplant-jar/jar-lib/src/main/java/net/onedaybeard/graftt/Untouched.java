@@ -0,0 +1,7 @@
+package net.onedaybeard.graftt;
+
+public class Untouched {
+    public String greet() {
+        return "untouched";
+    }
+}
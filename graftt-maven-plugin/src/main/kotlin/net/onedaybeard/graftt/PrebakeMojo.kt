@@ -0,0 +1,110 @@
+package net.onedaybeard.graftt
+
+import com.github.michaelbull.result.*
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.graft.Discovered
+import net.onedaybeard.graftt.graft.transplantAllClassfiles
+import org.apache.maven.plugin.AbstractMojo
+import org.apache.maven.plugin.MojoExecutionException
+import org.apache.maven.plugins.annotations.LifecyclePhase.PROCESS_CLASSES
+import org.apache.maven.plugins.annotations.Mojo
+import org.apache.maven.plugins.annotations.Parameter
+import org.apache.maven.plugins.annotations.ResolutionScope.COMPILE_PLUS_RUNTIME
+import org.apache.maven.project.MavenProject
+import org.objectweb.asm.Type
+import java.io.File
+import java.io.FileNotFoundException
+import java.io.InputStream
+import java.util.zip.ZipFile
+
+/**
+ * Grafts recipients living in dependency jars at build time, writing the
+ * grafted classes to `graftt.prebaked`. The agent serves these classes as
+ * they are, without parsing or grafting them, unless the recipient or its
+ * transplants have changed since the build.
+ */
+@Mojo(
+    name = "prebake",
+    defaultPhase = PROCESS_CLASSES,
+    requiresDependencyResolution = COMPILE_PLUS_RUNTIME)
+class PrebakeMojo : AbstractMojo() {
+
+    @Parameter(defaultValue = "\${project}", readonly = true, required = true)
+    private lateinit var project: MavenProject
+
+    @Parameter(property = "project.build.outputDirectory", readonly = true)
+    private lateinit var classDir: File
+
+    @Parameter(property = "graftt.enable", defaultValue = "true")
+    private var enable: Boolean = false
+
+    /** Dependencies holding the recipients, as `groupId:artifactId` */
+    @Parameter(required = true)
+    private var recipients: List<String> = listOf()
+
+    /** additional transplants directory roots or jar files */
+    @Parameter
+    private var paths: List<File> = listOf()
+
+    /** Verification of grafted classes: `full`, `modified-methods-only` or `off` */
+    @Parameter(property = "graftt.verify", defaultValue = "full")
+    private var verify: String = "full"
+
+    override fun execute() {
+        if (!enable) return
+
+        val verification = parseVerification(verify)
+
+        val jars = recipients.map(::dependencyJar).map(::ZipFile)
+        try {
+            fun entry(type: Type) = jars.firstOrNull { jar -> jar.getEntry("${type.internalName}.class") != null }
+
+            // only transplants onto recipients of the named dependencies are prebaked
+            val discovered = findDiscovered(project, paths + classDir, log)
+                .filter { transplant -> entry(Type.getObjectType(transplant.recipient)) != null }
+                .takeIf(List<Discovered>::isNotEmpty)
+                ?: return log.warn("no transplants onto recipients in: $recipients")
+
+            val transplants = discovered.map { classNode(it.classfile) }
+
+            val originals = mutableMapOf<Type, ByteArray>()
+            fun loadRecipient(type: Type): Result<ByteArray, Msg> = resultOf {
+                val jar = entry(type) ?: throw FileNotFoundException("${type.internalName}.class")
+                jar.getInputStream(jar.getEntry("${type.internalName}.class"))
+                    .use(InputStream::readBytes)
+                    .also { synchronized(originals) { originals[type] = it } }
+            }
+
+            val batch = transplantAllClassfiles(transplants, ::loadRecipient, verification)
+            batch.errors.firstOrNull()?.let(`(╯°□°）╯︵ ┻━┻`)
+
+            val donors = discovered.groupBy(Discovered::recipient)
+            val prebaked = batch.results
+                .map { (type, grafted) -> PrebakedClass(
+                    recipient = type.internalName,
+                    recipientHash = contentHash(originals.getValue(type)),
+                    donorsHash = donorsHash(donors.getValue(type.internalName).digests()),
+                    classfile = grafted.unwrap()) }
+                .sortedBy(PrebakedClass::recipient)
+
+            File(classDir, "graftt.prebaked").outputStream().use { out -> writePrebaked(prebaked, out) }
+            prebaked.forEach { log.info("prebaked: ${it.recipient}") }
+        } finally {
+            jars.forEach(ZipFile::close)
+        }
+    }
+
+    /** digests of the transplants as registered by the agent, ordered by transplant name */
+    private fun List<Discovered>.digests(): List<ByteArray> = sortedBy(Discovered::name)
+        .map { transplant -> contentHash(transplant.classfile) }
+
+    private fun dependencyJar(coordinates: String): File {
+        val (groupId, artifactId) = coordinates.split(':').takeIf { it.size == 2 }
+            ?: throw MojoExecutionException("expected groupId:artifactId: $coordinates")
+
+        return project.artifacts
+            .find { it.groupId == groupId && it.artifactId == artifactId }
+            ?.file
+            ?: throw MojoExecutionException("unable to resolve dependency: $coordinates")
+    }
+}
@@ -1,13 +1,13 @@
 package net.onedaybeard.graftt
 
-import net.onedaybeard.graftt.asm.qualifiedName
-import net.onedaybeard.graftt.graft.isTransplant
+import net.onedaybeard.graftt.graft.Discovered
+import net.onedaybeard.graftt.graft.discoverTransplants
 import org.apache.maven.plugin.AbstractMojo
+import org.apache.maven.plugin.MojoExecutionException
 import org.apache.maven.plugins.annotations.LifecyclePhase.*
 import org.apache.maven.plugins.annotations.Mojo
 import org.apache.maven.plugins.annotations.Parameter
 import org.apache.maven.plugins.annotations.ResolutionScope.COMPILE
-import org.objectweb.asm.tree.ClassNode
 import java.io.File
 
 
@@ -25,12 +25,41 @@ class GenerateIndexMojo : AbstractMojo() {
     @Parameter(property = "project.build.outputDirectory", readonly = true)
     private lateinit var classDir: File
 
+    /**
+     * `binary` records transplant, recipient and content hash, letting the
+     * agent register transplants without loading them as classes. `text`
+     * lists the qualified name of each transplant, one per line.
+     */
+    @Parameter(property = "graftt.index.format", defaultValue = "text")
+    private var format: String = "text"
+
+    /** Embed the class files of the transplants in a `binary` index */
+    @Parameter(property = "graftt.index.embedTransplants", defaultValue = "false")
+    private var embedTransplants: Boolean = false
+
     override fun execute() {
-        classNodes(classDir)
-            .filter(ClassNode::isTransplant)
-            .map(ClassNode::qualifiedName)
-            .joinToString("\n")
-            .takeIf(String::isNotEmpty)
-            ?.let { File(classDir, "graftt.index").writeText(it) }
+        // only class headers are read
+        val transplants = discoverTransplants(classDir)
+            .takeIf(List<Discovered>::isNotEmpty)
+            ?: return
+
+        val index = File(classDir, "graftt.index")
+        when (format) {
+            "binary" -> index.outputStream().use { out ->
+                writeIndex(transplants.map(::indexEntry), out)
+            }
+            "text" -> transplants
+                .map { it.name.replace('/', '.') }
+                .joinToString("\n")
+                .let { index.writeText(it) }
+            else -> throw MojoExecutionException("format must be one of [binary, text]: $format")
+        }
     }
+
+    private fun indexEntry(donor: Discovered) = IndexEntry(
+        donor = donor.name,
+        recipient = donor.recipient,
+        hash = contentHash(donor.classfile),
+        classfile = donor.classfile.takeIf { embedTransplants },
+        profiles = donor.profiles)
 }
@@ -0,0 +1,73 @@
+package net.onedaybeard.graftt
+
+import com.github.michaelbull.result.*
+import net.onedaybeard.graftt.graft.transplantJar
+import org.apache.maven.plugin.AbstractMojo
+import org.apache.maven.plugins.annotations.LifecyclePhase.PACKAGE
+import org.apache.maven.plugins.annotations.Mojo
+import org.apache.maven.plugins.annotations.Parameter
+import org.apache.maven.plugins.annotations.ResolutionScope.COMPILE_PLUS_RUNTIME
+import org.apache.maven.project.MavenProject
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption.REPLACE_EXISTING
+
+/**
+ * Applies transplants to a packaged jar. Recipients are grafted as the
+ * jar is streamed into its patched copy; all other entries are copied
+ * without being parsed or recompressed.
+ */
+@Mojo(
+    name = "transplant-jar",
+    defaultPhase = PACKAGE,
+    requiresDependencyResolution = COMPILE_PLUS_RUNTIME)
+class TransplantJarMojo : AbstractMojo() {
+
+    @Parameter(defaultValue = "\${project}", readonly = true, required = true)
+    private lateinit var project: MavenProject
+
+    @Parameter(property = "project.build.outputDirectory", readonly = true)
+    private lateinit var classDir: File
+
+    @Parameter(property = "graftt.enable", defaultValue = "true")
+    private var enable: Boolean = false
+
+    /** Jar holding the recipients; defaults to the project's artifact */
+    @Parameter(
+        property = "graftt.jar",
+        defaultValue = "\${project.build.directory}/\${project.build.finalName}.jar")
+    private lateinit var jar: File
+
+    /** Patched jar; replaces [jar] unless specified */
+    @Parameter(property = "graftt.outputJar")
+    private var outputJar: File? = null
+
+    /** additional transplants directory roots or jar files */
+    @Parameter
+    private var paths: List<File> = listOf()
+
+    /** Verification of grafted classes: `full`, `modified-methods-only` or `off` */
+    @Parameter(property = "graftt.verify", defaultValue = "full")
+    private var verify: String = "full"
+
+    override fun execute() {
+        if (!enable) return
+
+        val verification = parseVerification(verify)
+
+        val transplants = findTransplants(project, paths + classDir.takeIf(File::exists).let(::listOfNotNull), log)
+        if (transplants.isEmpty() && outputJar == null)
+            return
+
+        // written next to the jar, replacing it once grafted
+        val output = outputJar ?: File(jar.parentFile, "${jar.name}.graftt")
+        val recipients = transplantJar(jar, output, transplants, verification)
+            .onFailure(`(╯°□°）╯︵ ┻━┻`)
+            .unwrap()
+
+        if (outputJar == null)
+            Files.move(output.toPath(), jar.toPath(), REPLACE_EXISTING)
+
+        log.info("grafted ${recipients.size} recipients: ${outputJar ?: jar}")
+    }
+}
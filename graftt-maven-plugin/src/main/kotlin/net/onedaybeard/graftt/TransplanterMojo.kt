@@ -4,26 +4,21 @@ import com.github.michaelbull.result.*
 import net.onedaybeard.graftt.asm.classNode
 import net.onedaybeard.graftt.asm.shortName
 import net.onedaybeard.graftt.asm.toBytes
-import net.onedaybeard.graftt.graft.isTransplant
-import net.onedaybeard.graftt.graft.readRecipientName
-import net.onedaybeard.graftt.graft.transplant
-import net.onedaybeard.graftt.graft.readRecipientType
-import org.apache.maven.artifact.Artifact
-import org.apache.maven.model.Dependency
+import net.onedaybeard.graftt.graft.*
 import org.apache.maven.plugin.AbstractMojo
+import org.apache.maven.plugin.MojoExecutionException
 import org.apache.maven.plugins.annotations.LifecyclePhase.PROCESS_CLASSES
 import org.apache.maven.plugins.annotations.Mojo
 import org.apache.maven.plugins.annotations.Parameter
 import org.apache.maven.plugins.annotations.ResolutionScope.COMPILE_PLUS_RUNTIME
 import org.objectweb.asm.Type
+import org.objectweb.asm.commons.SimpleRemapper
 import org.objectweb.asm.tree.ClassNode
 import java.io.File
 import java.lang.Integer.max
 import java.lang.RuntimeException
 import org.apache.maven.project.MavenProject
-import org.objectweb.asm.commons.Remapper
-import org.objectweb.asm.commons.SimpleRemapper
-import java.io.FileNotFoundException
+import java.util.concurrent.ConcurrentHashMap
 
 
 private const val LINE_WIDTH = 72
@@ -58,50 +53,53 @@ class TransplanterMojo : AbstractMojo() {
     @Parameter(property = "graftt.keepTransplants", defaultValue = "false")
     private var keepTransplants: Boolean = false
 
+    /** Verification of grafted classes: `full`, `modified-methods-only` or `off` */
+    @Parameter(property = "graftt.verify", defaultValue = "full")
+    private var verify: String = "full"
+
+    /**
+     * Fails the build when a fused method outgrows this inlining threshold:
+     * `max-inline-size` (35 bytes) or `freq-inline-size` (325 bytes)
+     */
+    @Parameter(property = "graftt.failOnInliningThreshold")
+    private var failOnInliningThreshold: String? = null
+
+    /** code sizes of recipients prior to grafting, for the [InliningReport] */
+    private val sizesBefore = ConcurrentHashMap<Type, Map<String, Int>>()
+
     override fun execute() {
         if (!enable) return
 
-        val transplants = findTransplants()
-        val remapper = transplants
-            .associateBy(ClassNode::name) { cn -> readRecipientName(cn).unwrap() }
-            .let(::SimpleRemapper)
-
-        // commence surgery
-        transplants
-            .onEach { cn -> transplant(cn, remapper) }
-            .let(::logSummary)
+        val verification = parseVerification(verify)
 
-        if (!keepTransplants) {
-            classNodes(classDir)
-                .filter(ClassNode::isTransplant)
-                .map { it.toFile() }
-                .forEach { it.delete() }
+        val threshold = try {
+            failOnInliningThreshold?.let(InliningThreshold.Companion::parse)
+        } catch (e: IllegalArgumentException) {
+            throw MojoExecutionException(e.message)
         }
-    }
 
-    private fun findTransplants(): List<ClassNode> {
-        val transplants = mutableListOf<ClassNode>()
+        val transplants = findTransplants(project, paths + classDir, log)
 
-        // resolve ClassNodes from plugin's <dependencies>, if any
-        project.buildPlugins
-            .first { it.artifactId == "graftt-maven-plugin" }
-            .let { it.dependencies ?: listOf() }
-            .map { it.toArtifact() }
-            .map { it.file ?: throw FileNotFoundException("$it") }
-            .onEach { log.debug("donor preparing: ${it.path}") }
-            .flatMapTo(transplants, ::classNodes)
+        // commence surgery; recipients are grafted in parallel, nothing is saved on failure
+        val batch = transplantAll(transplants, ::loadRecipient, verification)
+        batch.errors.firstOrNull()?.let(`(╯°□°）╯︵ ┻━┻`)
 
-        // recursively resolve ClassNodes from //configuration/paths and target/classes
-        (paths + classDir)
-            .flatMapTo(transplants, ::classNodes)
+        val reports = inliningReports(transplants, batch)
+        val crossing = threshold?.let { reports.flatMap { r -> r.crossing(threshold).map { r.recipient to it } } }
+        if (!crossing.isNullOrEmpty()) {
+            crossing.forEach { (recipient, method) -> log.error("$recipient::$method") }
+            throw MojoExecutionException("${crossing.size} fused methods exceed ${threshold.key}")
+        }
 
-        return transplants.filter(ClassNode::isTransplant)
-    }
+        batch.results.values.forEach { grafted -> grafted.andThen(::save).onFailure(`(╯°□°）╯︵ ┻━┻`) }
 
-    private fun transplant(donor: ClassNode, remapper: Remapper) {
-        transplant(donor, ::loadClassNode, remapper)
-            .andThen(::save)
-            .onFailure(`(╯°□°）╯︵ ┻━┻`)
+        logSummary(transplants, reports)
+
+        if (!keepTransplants) {
+            discoverTransplants(classDir)
+                .map { classFile(it.name) }
+                .forEach { it.delete() }
+        }
     }
 
     private fun loadClassNode(type: Type): Result<ClassNode, Msg> = resultOf {
@@ -109,25 +107,35 @@ class TransplanterMojo : AbstractMojo() {
             .let(::classNode)
     }
 
-    private fun save(cn: ClassNode) = resultOf {
-        cn.toFile().writeBytes(cn.toBytes())
+    /** as [loadClassNode], recording code sizes prior to grafting */
+    private fun loadRecipient(type: Type): Result<ClassNode, Msg> =
+        loadClassNode(type).onSuccess { cn -> sizesBefore[type] = codeSizes(cn) }
+
+    private fun inliningReports(
+        transplants: List<ClassNode>,
+        batch: Batch<ClassNode>
+    ): List<InliningReport> {
+        val recipients = transplants.associateBy({ it.name }, { readRecipientName(it).unwrap() })
+        val remapper = SimpleRemapper(recipients)
+        val donors = transplants.groupBy { recipients.getValue(it.name) }
+
+        return batch.results
+            .mapNotNull { (type, grafted) -> grafted.get()?.let { type to it } }
+            .map { (type, cn) -> inliningReport(sizesBefore.getValue(type), cn, donors.getValue(cn.name), remapper) }
+            .sortedBy(InliningReport::recipient)
     }
 
-    private fun ClassNode.toFile() = File(classDir, "$name.class").also { f ->
-        if (!f.exists()) throw RuntimeException("wrong path: ${f.absolutePath}")
+    private fun save(cn: ClassNode) = resultOf {
+        cn.toFile().writeBytes(cn.toBytes())
     }
 
-    private fun Dependency.toArtifact(): Artifact {
-        infix fun Artifact.matching(dependency: Dependency): Boolean {
-            return artifactId == dependency.artifactId
-                && groupId    == dependency.groupId
-        }
+    private fun ClassNode.toFile() = classFile(name)
 
-        return project.artifacts.find { it matching this }
-            ?: throw IllegalStateException("unable to resolve dependency: $artifactId")
+    private fun classFile(name: String) = File(classDir, "$name.class").also { f ->
+        if (!f.exists()) throw RuntimeException("wrong path: ${f.absolutePath}")
     }
 
-    private fun logSummary(donated: List<ClassNode>) {
+    private fun logSummary(donated: List<ClassNode>, reports: List<InliningReport>) {
         fun format(kv: Pair<String, String>, delim: Char = '.'): String {
             return "$delim".repeat(max(2, LINE_WIDTH - 2 - kv.length))
                 .let { "${kv.first} $it ${kv.second}" }
@@ -144,6 +152,8 @@ class TransplanterMojo : AbstractMojo() {
         log.info(format("enable" to "$enable"))
         log.info(format("classDir" to "$classDir"))
         log.info(format("keepTransplants" to "$keepTransplants"))
+        log.info(format("verify" to verify))
+        log.info(format("failOnInliningThreshold" to "$failOnInliningThreshold"))
         log.info("-".repeat(LINE_WIDTH))
         log.info(header("TRANSPLANTS"))
         donated
@@ -151,5 +161,21 @@ class TransplanterMojo : AbstractMojo() {
             .map { (d, r) -> format(d.shortName to r.shortName) }
             .forEach(log::info)
         log.info("-".repeat(LINE_WIDTH))
+        log.info(header("INLINING"))
+        reports
+            .flatMap { r -> r.methods.map { m -> r.recipient.substringAfterLast('/') to m } }
+            .map { (recipient, m) -> format("$recipient::${m.name}" to m.summary()) }
+            .forEach(log::info)
+        log.info("-".repeat(LINE_WIDTH))
+    }
+
+    /** size before and after grafting, max stack and locals; `!` marks crossed thresholds */
+    private fun GraftedMethod.summary(): String {
+        val exceeded = InliningThreshold.values()
+            .lastOrNull(::exceeds)
+            ?.let { t -> if (crosses(t)) " !${t.key}" else " >${t.key}" }
+            ?: ""
+
+        return "${sizeBefore ?: "-"} -> $size B, $maxStack/$maxLocals$exceeded"
     }
 }
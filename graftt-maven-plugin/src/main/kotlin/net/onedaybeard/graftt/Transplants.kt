@@ -0,0 +1,57 @@
+package net.onedaybeard.graftt
+
+import net.onedaybeard.graftt.asm.classNode
+import net.onedaybeard.graftt.graft.Discovered
+import net.onedaybeard.graftt.graft.Verification
+import net.onedaybeard.graftt.graft.discoverTransplants
+import org.apache.maven.artifact.Artifact
+import org.apache.maven.model.Dependency
+import org.apache.maven.plugin.MojoExecutionException
+import org.apache.maven.plugin.logging.Log
+import org.apache.maven.project.MavenProject
+import org.objectweb.asm.tree.ClassNode
+import java.io.File
+import java.io.FileNotFoundException
+
+/**
+ * Transplants of the plugin's `<dependencies>`, if any, followed by
+ * those under [roots]: directories or jar files.
+ */
+internal fun findTransplants(project: MavenProject, roots: List<File>, log: Log): List<ClassNode> =
+    findDiscovered(project, roots, log).map { classNode(it.classfile) }
+
+/** as [findTransplants], without parsing the transplants */
+internal fun findDiscovered(project: MavenProject, roots: List<File>, log: Log): List<Discovered> {
+    val transplants = mutableListOf<Discovered>()
+
+    // resolve transplants from plugin's <dependencies>, if any
+    project.buildPlugins
+        .first { it.artifactId == "graftt-maven-plugin" }
+        .let { it.dependencies ?: listOf() }
+        .map { it.toArtifact(project) }
+        .map { it.file ?: throw FileNotFoundException("$it") }
+        .onEach { log.debug("donor preparing: ${it.path}") }
+        .flatMapTo(transplants, ::discoverTransplants)
+
+    // recursively resolve transplants from //configuration/paths and target/classes
+    roots.flatMapTo(transplants, ::discoverTransplants)
+
+    return transplants
+}
+
+private fun Dependency.toArtifact(project: MavenProject): Artifact {
+    infix fun Artifact.matching(dependency: Dependency): Boolean {
+        return artifactId == dependency.artifactId
+            && groupId    == dependency.groupId
+    }
+
+    return project.artifacts.find { it matching this }
+        ?: throw IllegalStateException("unable to resolve dependency: $artifactId")
+}
+
+/** `<verify>` parameter, see [Verification.parse] */
+internal fun parseVerification(key: String): Verification = try {
+    Verification.parse(key)
+} catch (e: IllegalArgumentException) {
+    throw MojoExecutionException(e.message)
+}